@@ -0,0 +1,123 @@
+package com.algorithmvisualizer;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Scelta dell'algoritmo per la modalità adattiva, in base a un campione dell'input.
+ * Il Counting Sort conviene solo quando l'intervallo dei valori k è confrontabile con n:
+ * con k molto più grande alloca e scorre contatori quasi tutti vuoti. In quel caso il
+ * campione decide tra Radix Sort (molti elementi, valori in gran parte distinti) e
+ * Arrays.sort dual-pivot (input piccolo, pochi valori distinti o quasi ordinato, casi
+ * in cui partizione a tre vie e riconoscimento delle sequenze ordinate funzionano bene).
+ * Minimo e massimo sono calcolati sull'intero input, perché il Counting Sort li
+ * richiede esatti e il motore li riusa; un input che nel campione risulta ordinato
+ * viene verificato per intero prima dell'uscita anticipata.
+ * Un'istanza descrive una singola scelta.
+ */
+final class AdaptiveSortSelector {
+
+    /** Numero massimo di elementi (e di coppie adiacenti) nel campione */
+    static final int SAMPLE_SIZE = 1024;
+    /** Sotto questa dimensione Arrays.sort (ordinamento per inserzione) vince comunque */
+    static final int SMALL_INPUT = 64;
+    /** Il Counting Sort si sceglie finché k non supera questo multiplo di n */
+    static final int COUNTING_RANGE_FACTOR = 4;
+    /** Dimensione minima per cui le passate del Radix Sort si ripagano */
+    static final int RADIX_MIN_LENGTH = 1 << 12;
+    /** Frazione minima di valori distinti nel campione per scegliere il Radix Sort */
+    static final double RADIX_MIN_DISTINCT_RATIO = 1.0 / 8;
+    /** Frazione massima di coppie decrescenti nel campione per considerare l'input quasi ordinato */
+    static final double NEARLY_SORTED_DESCENT_RATIO = 1.0 / 64;
+
+    private int minValue;
+    private int maxValue;
+    private double distinctRatio;
+    private double descentRatio;
+    private String reason;
+
+    /**
+     * Sceglie l'algoritmo per l'array indicato, che non viene modificato
+     */
+    CountingSortEngine.SortAlgorithm select(int[] data) {
+        int n = data.length;
+        if (n <= 1) {
+            if (n == 1) minValue = maxValue = data[0];
+            reason = "al massimo un elemento";
+            return CountingSortEngine.SortAlgorithm.ALREADY_SORTED;
+        }
+
+        sample(data);
+        if (descentRatio == 0 && isSorted(data)) {
+            minValue = data[0];
+            maxValue = data[n - 1];
+            reason = "input già ordinato";
+            return CountingSortEngine.SortAlgorithm.ALREADY_SORTED;
+        }
+
+        long minMax = CountingSortKernels.minMax(data, 0, n);
+        minValue = CountingSortKernels.unpackMin(minMax);
+        maxValue = CountingSortKernels.unpackMax(minMax);
+        long k = (long) maxValue - minValue + 1;
+
+        if (n < SMALL_INPUT) {
+            reason = String.format(Locale.ROOT, "n = %d sotto %d elementi", n, SMALL_INPUT);
+            return CountingSortEngine.SortAlgorithm.COMPARISON;
+        }
+        if (k <= (long) COUNTING_RANGE_FACTOR * n) {
+            reason = String.format(Locale.ROOT, "k = %d non supera %d * n", k, COUNTING_RANGE_FACTOR);
+            return CountingSortEngine.SortAlgorithm.COUNTING;
+        }
+        if (descentRatio <= NEARLY_SORTED_DESCENT_RATIO) {
+            reason = String.format(Locale.ROOT, "k = %d >> n e input quasi ordinato (%.1f%% di discese nel campione)",
+                    k, descentRatio * 100);
+            return CountingSortEngine.SortAlgorithm.COMPARISON;
+        }
+        if (n < RADIX_MIN_LENGTH) {
+            reason = String.format(Locale.ROOT, "k = %d >> n e n = %d troppo piccolo per il Radix Sort", k, n);
+            return CountingSortEngine.SortAlgorithm.COMPARISON;
+        }
+        if (distinctRatio < RADIX_MIN_DISTINCT_RATIO) {
+            reason = String.format(Locale.ROOT, "k = %d >> n e pochi valori distinti (%.1f%% nel campione)",
+                    k, distinctRatio * 100);
+            return CountingSortEngine.SortAlgorithm.COMPARISON;
+        }
+        reason = String.format(Locale.ROOT, "k = %d >> n con %.1f%% di valori distinti nel campione", k, distinctRatio * 100);
+        return CountingSortEngine.SortAlgorithm.RADIX;
+    }
+
+    /**
+     * Stima densità dei valori distinti e ordinamento da elementi a passo costante
+     */
+    private void sample(int[] data) {
+        int n = data.length;
+        int size = Math.min(SAMPLE_SIZE, n - 1);
+        long stride = (n - 1) / size;
+        int[] values = new int[size];
+        int descents = 0;
+        for (int s = 0; s < size; s++) {
+            int i = (int) (s * stride);
+            values[s] = data[i];
+            if (data[i] > data[i + 1]) descents++;
+        }
+        descentRatio = (double) descents / size;
+
+        Arrays.sort(values);
+        int distinct = 1;
+        for (int s = 1; s < size; s++) {
+            if (values[s] != values[s - 1]) distinct++;
+        }
+        distinctRatio = (double) distinct / size;
+    }
+
+    private static boolean isSorted(int[] data) {
+        for (int i = 1; i < data.length; i++) {
+            if (data[i - 1] > data[i]) return false;
+        }
+        return true;
+    }
+
+    int getMinValue() { return minValue; }
+    int getMaxValue() { return maxValue; }
+    String getReason() { return reason; }
+}
@@ -0,0 +1,281 @@
+package com.algorithmvisualizer;
+
+import java.util.Arrays;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.Node;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+/**
+ * Renderer delle barre su una WritableImage: tutte le barre vengono disegnate in un
+ * buffer di pixel e copiate nell'immagine una sola volta per frame, al posto di un
+ * nodo Rectangle con DropShadow per ogni elemento.
+ * Quando gli elementi sono più dei pixel disponibili ogni colonna rappresenta un
+ * intervallo di indici e mostra il minimo (barra piena) e il massimo (parte chiara)
+ * dell'intervallo. Vengono ridisegnate solo le colonne sporche.
+ * L'array dei valori non viene copiato: chi lo modifica segnala gli indici cambiati
+ * con {@link #markChanged(int)}.
+ */
+public class CountingSortBarRenderer {
+
+    /** Numero massimo di elementi evidenziati contemporaneamente */
+    public static final int MAX_HIGHLIGHTS = 4;
+
+    private static final int TRANSPARENT = 0x00000000;
+
+    private final ImageView view = new ImageView();
+    private WritableImage image;
+    private int width;
+    private int height;
+    private int[] pixels;
+    private int[] rowColors;      // Gradiente delle barre, una tinta per riga
+    private int[] rowRangeColors; // Tinta più chiara per la fascia tra minimo e massimo
+
+    private int[] values = new int[0];
+    private double scaleMin;
+    private double scaleMax = 1;
+
+    private final int[] highlightIndex = new int[MAX_HIGHLIGHTS];
+    private final int[] highlightColor = new int[MAX_HIGHLIGHTS];
+    private double rainbowFraction;
+
+    // Colonne da ridisegnare al prossimo frame, [dirtyFrom, dirtyTo)
+    private int dirtyFrom = Integer.MAX_VALUE;
+    private int dirtyTo = -1;
+
+    private final AnimationTimer frameTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            render();
+        }
+    };
+
+    public CountingSortBarRenderer(int width, int height) {
+        Arrays.fill(highlightIndex, -1);
+        resize(width, height);
+        frameTimer.start();
+    }
+
+    public Node getNode() { return view; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    /**
+     * Ridimensiona l'area di disegno e pianifica un ridisegno completo
+     */
+    public void resize(int newWidth, int newHeight) {
+        newWidth = Math.max(1, newWidth);
+        newHeight = Math.max(1, newHeight);
+        if (newWidth == width && newHeight == height) return;
+        width = newWidth;
+        height = newHeight;
+        image = new WritableImage(width, height);
+        pixels = new int[width * height];
+        rowColors = new int[height];
+        rowRangeColors = new int[height];
+        for (int y = 0; y < height; y++) {
+            Color color = gradientAt((double) y / Math.max(1, height - 1));
+            rowColors[y] = toArgb(color);
+            rowRangeColors[y] = toArgb(color.interpolate(Color.WHITE, 0.45));
+        }
+        view.setImage(image);
+        markAllDirty();
+    }
+
+    /**
+     * Imposta l'array da visualizzare (senza copiarlo) e ridisegna tutto
+     */
+    public void setValues(int[] newValues) {
+        values = newValues != null ? newValues : new int[0];
+        markAllDirty();
+    }
+
+    /**
+     * Imposta i valori corrispondenti alla base e alla cima dell'area di disegno
+     */
+    public void setValueRange(double min, double max) {
+        scaleMin = min;
+        scaleMax = max > min ? max : min + 1;
+        markAllDirty();
+    }
+
+    /**
+     * Segnala che il valore all'indice indicato è cambiato
+     */
+    public void markChanged(int index) {
+        if (index < 0 || index >= values.length) return;
+        assert columnsMapBack(index) : "Colonne errate per l'indice " + index;
+        markColumnsDirty(firstColumn(index), lastColumn(index) + 1);
+    }
+
+    /**
+     * Evidenzia un elemento nello slot indicato (0..MAX_HIGHLIGHTS-1)
+     */
+    public void setHighlight(int slot, int index, Color color) {
+        if (highlightIndex[slot] >= 0) markChanged(highlightIndex[slot]);
+        highlightIndex[slot] = index;
+        highlightColor[slot] = toArgb(color);
+        markChanged(index);
+    }
+
+    public void clearHighlights() {
+        for (int slot = 0; slot < MAX_HIGHLIGHTS; slot++) {
+            if (highlightIndex[slot] >= 0) {
+                markChanged(highlightIndex[slot]);
+                highlightIndex[slot] = -1;
+            }
+        }
+    }
+
+    /**
+     * Colora con una scala arcobaleno la frazione sinistra delle barre (0 = nessuna, 1 = tutte)
+     */
+    public void setRainbowFraction(double fraction) {
+        double clamped = Math.max(0, Math.min(1, fraction));
+        if (clamped == rainbowFraction) return;
+        int before = (int) (rainbowFraction * width);
+        int after = (int) (clamped * width);
+        rainbowFraction = clamped;
+        markColumnsDirty(Math.min(before, after), Math.max(before, after) + 1);
+    }
+
+    public void markAllDirty() {
+        markColumnsDirty(0, width);
+    }
+
+    /**
+     * Ridisegna le colonne sporche e le copia nell'immagine; chiamato a ogni frame
+     */
+    public void render() {
+        if (dirtyFrom >= dirtyTo) return;
+        int from = Math.max(0, dirtyFrom);
+        int to = Math.min(width, dirtyTo);
+        dirtyFrom = Integer.MAX_VALUE;
+        dirtyTo = -1;
+        for (int x = from; x < to; x++) {
+            drawColumn(x);
+        }
+        if (from < to) {
+            image.getPixelWriter().setPixels(from, 0, to - from, height,
+                    PixelFormat.getIntArgbInstance(), pixels, from, width);
+        }
+    }
+
+    private void drawColumn(int x) {
+        int n = values.length;
+        int top = height; // Riga della cima della barra (height = colonna vuota)
+        int rangeTop = height;
+        int highlight = 0;
+        boolean gap = false;
+        if (n > 0) {
+            int firstIndex;
+            int lastIndex;
+            if (n <= width) {
+                firstIndex = lastIndex = (int) ((long) x * n / width);
+                // Un pixel di separazione quando le barre sono abbastanza larghe
+                gap = width / n >= 4 && lastColumn(firstIndex) == x;
+            } else {
+                firstIndex = (int) ((long) x * n / width);
+                lastIndex = (int) ((long) (x + 1) * n / width) - 1;
+            }
+            int min = values[firstIndex];
+            int max = min;
+            for (int i = firstIndex + 1; i <= lastIndex; i++) {
+                int value = values[i];
+                if (value < min) min = value;
+                if (value > max) max = value;
+            }
+            top = rowFor(min);
+            rangeTop = rowFor(max);
+            for (int slot = 0; slot < MAX_HIGHLIGHTS; slot++) {
+                int index = highlightIndex[slot];
+                if (index >= firstIndex && index <= lastIndex) highlight = highlightColor[slot];
+            }
+        }
+        int rainbow = x < rainbowFraction * width
+                ? toArgb(Color.hsb((x * 360.0 / width) % 360, 0.8, 0.9)) : 0;
+        for (int y = 0, offset = x; y < height; y++, offset += width) {
+            int color;
+            if (gap || y < rangeTop) color = TRANSPARENT;
+            else if (highlight != 0) color = highlight;
+            else if (rainbow != 0) color = rainbow;
+            else if (y < top) color = rowRangeColors[y];
+            else color = rowColors[y];
+            pixels[offset] = color;
+        }
+    }
+
+    /**
+     * Riga della cima di una barra con il valore indicato (con altezza minima di un pixel)
+     */
+    private int rowFor(int value) {
+        double fraction = (value - scaleMin) / (scaleMax - scaleMin);
+        int barHeight = (int) Math.round(Math.max(0, Math.min(1, fraction)) * height);
+        return height - Math.max(1, barHeight);
+    }
+
+    /**
+     * Prima colonna che mostra l'indice: inverso esatto della mappatura di {@link #drawColumn}
+     * (con n <= width la colonna x mostra floor(x * n / width), altrimenti la colonna x copre
+     * gli indici da floor(x * n / width) a floor((x + 1) * n / width) - 1)
+     */
+    private int firstColumn(int index) {
+        int n = values.length;
+        if (n > width) return lastColumn(index);
+        return (int) ceilDiv((long) index * width, n);
+    }
+
+    /**
+     * Ultima colonna che mostra l'indice (con n > width l'unica)
+     */
+    private int lastColumn(int index) {
+        int n = values.length;
+        if (n > width) return (int) (((long) (index + 1) * width - 1) / n);
+        return (int) ceilDiv((long) (index + 1) * width, n) - 1;
+    }
+
+    /**
+     * Verifica che ogni colonna tra firstColumn e lastColumn mostri davvero l'indice
+     * (usato come asserzione)
+     */
+    private boolean columnsMapBack(int index) {
+        int n = values.length;
+        int first = firstColumn(index);
+        int last = lastColumn(index);
+        if (first > last || first < 0 || last >= width) return false;
+        for (int x = first; x <= last; x++) {
+            long from = (long) x * n / width;
+            long to = n <= width ? from : (long) (x + 1) * n / width - 1;
+            if (index < from || index > to) return false;
+        }
+        return true;
+    }
+
+    private static long ceilDiv(long dividend, long divisor) {
+        return (dividend + divisor - 1) / divisor;
+    }
+
+    private void markColumnsDirty(int from, int to) {
+        if (from < dirtyFrom) dirtyFrom = from;
+        if (to > dirtyTo) dirtyTo = to;
+    }
+
+    private static Color gradientAt(double t) {
+        // Stessi colori del gradiente originale delle barre
+        Color top = Color.web("#667eea");
+        Color middle = Color.web("#764ba2");
+        Color bottom = Color.web("#8364a6");
+        return t < 0.5 ? top.interpolate(middle, t * 2) : middle.interpolate(bottom, (t - 0.5) * 2);
+    }
+
+    private static int toArgb(Color color) {
+        int a = (int) Math.round(color.getOpacity() * 255);
+        int r = (int) Math.round(color.getRed() * 255);
+        int g = (int) Math.round(color.getGreen() * 255);
+        int b = (int) Math.round(color.getBlue() * 255);
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+}
@@ -0,0 +1,207 @@
+package com.algorithmvisualizer;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Suite di benchmark del motore, eseguibile senza dipendenze esterne.
+ * Per ogni combinazione di modalità, livello di traccia, distribuzione, n e k esegue
+ * un riscaldamento (per far compilare al JIT i cicli caldi) e poi più iterazioni
+ * di misura, ciascuna ripetuta finché non supera la durata minima.
+ * Riporta throughput, tempo per operazione e allocazione per operazione
+ * (contatori per thread della JVM HotSpot, l'equivalente del profiler gc di JMH)
+ * e scrive un CSV confrontabile tra una versione e l'altra.
+ *
+ * Esempio: java -Xmx8g com.algorithmvisualizer.CountingSortBenchmark
+ *          --sizes 10,1000,1000000 --ranges 10,100000 --csv risultati.csv
+ */
+public class CountingSortBenchmark {
+
+    /** Cicli di conteggio del percorso senza traccia (vedi {@link CountingSortEngine#setLaneHistograms}) */
+    public enum Kernels { LANES, SCALAR }
+
+    private static final String CSV_HEADER =
+            "mode,trace,kernels,distribution,n,k,ops_per_s,ns_per_op,elements_per_s,bytes_per_op,alloc_mb_per_s";
+
+    // Configurazione (modificabile da riga di comando)
+    private int[] sizes = {10, 1_000, 100_000, 10_000_000, 100_000_000};
+    private int[] ranges = {10, 1_000, 100_000, 10_000_000};
+    private List<CountingSortDataGenerator.Distribution> distributions = Arrays.asList(
+            CountingSortDataGenerator.Distribution.UNIFORM, CountingSortDataGenerator.Distribution.ZIPF,
+            CountingSortDataGenerator.Distribution.SORTED);
+    private List<CountingSortEngine.EngineMode> modes = Arrays.asList(CountingSortEngine.EngineMode.SEQUENTIAL,
+            CountingSortEngine.EngineMode.PARALLEL, CountingSortEngine.EngineMode.RADIX,
+            CountingSortEngine.EngineMode.ADAPTIVE); // EXTERNAL lavora su file
+    private List<CountingSortEngine.TraceLevel> traceLevels =
+            Arrays.asList(CountingSortEngine.TraceLevel.NONE, CountingSortEngine.TraceLevel.FULL);
+    private List<Kernels> kernels = Arrays.asList(Kernels.values());
+    private int warmupIterations = 3;
+    private int measurementIterations = 5;
+    private long minIterationNanos = 200_000_000L;
+    private int maxTracedSize = 100_000; // La traccia completa cresce con n: oltre si salta
+    private long seed = 42;
+    private String csvPath;
+
+    private final CountingSortEngine engine = new CountingSortEngine();
+    private final com.sun.management.ThreadMXBean threadBean = CountingSortMetrics.threadBean(true); // null: colonna NaN
+    private long blackhole; // Impedisce al JIT di eliminare il lavoro misurato
+
+    public static void main(String[] args) throws IOException {
+        CountingSortBenchmark benchmark = new CountingSortBenchmark();
+        benchmark.parseArguments(args);
+        benchmark.run();
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Valore mancante per " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--sizes": sizes = parseInts(value); break;
+                case "--ranges": ranges = parseInts(value); break;
+                case "--distributions":
+                    distributions = parseEnums(CountingSortDataGenerator.Distribution.class, value);
+                    break;
+                case "--modes": modes = parseEnums(CountingSortEngine.EngineMode.class, value); break;
+                case "--trace": traceLevels = parseEnums(CountingSortEngine.TraceLevel.class, value); break;
+                case "--kernels": kernels = parseEnums(Kernels.class, value); break;
+                case "--warmup": warmupIterations = Integer.parseInt(value); break;
+                case "--iterations": measurementIterations = Integer.parseInt(value); break;
+                case "--min-iteration-ms": minIterationNanos = Long.parseLong(value) * 1_000_000L; break;
+                case "--max-traced-size": maxTracedSize = Integer.parseInt(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--csv": csvPath = value; break;
+                default: throw new IllegalArgumentException("Opzione sconosciuta: " + option);
+            }
+        }
+    }
+
+    private void run() throws IOException {
+        List<String> rows = new ArrayList<>();
+        System.out.println(String.format(Locale.ROOT, "%-10s %-13s %-7s %-14s %11s %10s %14s %14s %14s %12s",
+                "Modalità", "Traccia", "Kernel", "Distrib.", "n", "k", "ops/s", "ns/op", "elementi/s", "byte/op"));
+        for (int n : sizes) {
+            for (int k : ranges) {
+                for (CountingSortDataGenerator.Distribution distribution : distributions) {
+                    int[] data = new CountingSortDataGenerator(distribution, 0, k - 1, seed).generate(n);
+                    for (CountingSortEngine.EngineMode mode : modes) {
+                        for (CountingSortEngine.TraceLevel level : traceLevels) {
+                            if (level != CountingSortEngine.TraceLevel.NONE
+                                    && (mode != CountingSortEngine.EngineMode.SEQUENTIAL || n > maxTracedSize)) {
+                                continue;
+                            }
+                            for (Kernels kernel : kernels) {
+                                // Le corsie riguardano solo il conteggio senza traccia del Counting Sort
+                                if (kernel == Kernels.SCALAR && (level != CountingSortEngine.TraceLevel.NONE
+                                        || (mode != CountingSortEngine.EngineMode.SEQUENTIAL
+                                        && mode != CountingSortEngine.EngineMode.ADAPTIVE))) {
+                                    continue;
+                                }
+                                engine.setLaneHistograms(kernel == Kernels.LANES);
+                                rows.add(measure(data, distribution, k, mode, level, kernel));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        if (csvPath != null) {
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(csvPath), StandardCharsets.UTF_8))) {
+                out.println(CSV_HEADER);
+                for (String row : rows) out.println(row);
+            }
+            System.out.println("CSV scritto in " + csvPath);
+        }
+        if (blackhole == 42) System.out.println(); // Consuma il blackhole
+    }
+
+    /**
+     * Misura una configurazione e restituisce la riga CSV corrispondente
+     */
+    private String measure(int[] data, CountingSortDataGenerator.Distribution distribution, int k,
+                           CountingSortEngine.EngineMode mode, CountingSortEngine.TraceLevel level, Kernels kernel) {
+        for (int i = 0; i < warmupIterations; i++) {
+            runIteration(data, mode, level);
+        }
+        long totalOps = 0;
+        long totalNanos = 0;
+        long totalBytes = 0;
+        for (int i = 0; i < measurementIterations; i++) {
+            long[] iteration = runIteration(data, mode, level);
+            totalOps += iteration[0];
+            totalNanos += iteration[1];
+            totalBytes += iteration[2];
+        }
+
+        double nanosPerOp = (double) totalNanos / totalOps;
+        double opsPerSecond = 1e9 / nanosPerOp;
+        double elementsPerSecond = opsPerSecond * data.length;
+        double bytesPerOp = totalBytes < 0 ? Double.NaN : (double) totalBytes / totalOps;
+        double allocMbPerSecond = bytesPerOp * opsPerSecond / (1024.0 * 1024.0);
+
+        System.out.println(String.format(Locale.ROOT, "%-10s %-13s %-7s %-14s %11d %10d %14.1f %14.0f %14.0f %12.0f",
+                mode, level, kernel, distribution, data.length, k, opsPerSecond, nanosPerOp, elementsPerSecond, bytesPerOp));
+        return String.format(Locale.ROOT, "%s,%s,%s,%s,%d,%d,%.3f,%.1f,%.1f,%.1f,%.3f",
+                mode, level, kernel, distribution, data.length, k, opsPerSecond, nanosPerOp,
+                elementsPerSecond, bytesPerOp, allocMbPerSecond);
+    }
+
+    /**
+     * Ripete l'ordinamento finché l'iterazione non supera la durata minima
+     * @return Operazioni eseguite, nanosecondi trascorsi e byte allocati (-1 se non misurabili)
+     */
+    private long[] runIteration(int[] data, CountingSortEngine.EngineMode mode, CountingSortEngine.TraceLevel level) {
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+        long elapsed;
+        long ops = 0;
+        do {
+            CountingSortResult result = engine.executeAlgorithm(data, mode, level);
+            blackhole += result.getMemoryAccesses() + result.getSteps().size();
+            ops++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < minIterationNanos);
+        long bytesAfter = allocatedBytes();
+        long bytes = bytesBefore < 0 || bytesAfter < 0 ? -1 : bytesAfter - bytesBefore;
+        return new long[] {ops, elapsed, bytes};
+    }
+
+    /**
+     * Byte allocati finora da tutti i thread vivi (compresi i worker del ForkJoinPool)
+     */
+    private long allocatedBytes() {
+        if (threadBean == null) return -1;
+        long total = 0;
+        for (long allocated : threadBean.getThreadAllocatedBytes(threadBean.getAllThreadIds())) {
+            if (allocated > 0) total += allocated;
+        }
+        return total;
+    }
+
+    private static int[] parseInts(String value) {
+        String[] parts = value.split(",");
+        int[] result = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            result[i] = (int) Double.parseDouble(parts[i].trim()); // Accetta anche 1e6
+        }
+        return result;
+    }
+
+    private static <E extends Enum<E>> List<E> parseEnums(Class<E> type, String value) {
+        List<E> result = new ArrayList<>();
+        for (String part : value.split(",")) {
+            result.add(Enum.valueOf(type, part.trim().toUpperCase(Locale.ROOT)));
+        }
+        return result;
+    }
+}
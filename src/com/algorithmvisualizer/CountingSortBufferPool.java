@@ -0,0 +1,74 @@
+package com.algorithmvisualizer;
+
+import java.util.Arrays;
+
+/**
+ * Array di conteggio riutilizzati, uno per larghezza dei contatori e per thread.
+ * Ogni thread ha il proprio pool, quindi non servono sincronizzazioni e un motore
+ * condiviso tra i thread di un pool di richieste non alloca contatori a regime.
+ * Gli array restituiti sono azzerati nell'intervallo richiesto (lo stesso lavoro
+ * che la JVM fa per un array nuovo) e possono essere più lunghi del necessario:
+ * i kernel ricevono sempre la lunghezza effettiva.
+ * Oltre {@link #MAX_POOLED_COUNTERS} contatori l'array viene allocato e non trattenuto,
+ * così un thread non tiene occupata memoria per un solo ordinamento grande.
+ * Un array va usato solo fino alla richiesta successiva dello stesso thread.
+ */
+final class CountingSortBufferPool {
+
+    /** Contatori trattenuti al massimo per larghezza: 1,75 MB per thread con tutte e tre */
+    static final int MAX_POOLED_COUNTERS = 1 << 18;
+
+    private static final ThreadLocal<CountingSortBufferPool> POOLS =
+            ThreadLocal.withInitial(CountingSortBufferPool::new);
+
+    private byte[] byteCounts = new byte[0];
+    private char[] charCounts = new char[0];
+    private int[] intCounts = new int[0];
+
+    private CountingSortBufferPool() {
+    }
+
+    /**
+     * Pool del thread chiamante
+     */
+    static CountingSortBufferPool current() {
+        return POOLS.get();
+    }
+
+    byte[] byteCounts(int length) {
+        if (length > MAX_POOLED_COUNTERS) return new byte[length];
+        if (byteCounts.length < length) {
+            byteCounts = new byte[grownLength(byteCounts.length, length)];
+        } else {
+            Arrays.fill(byteCounts, 0, length, (byte) 0);
+        }
+        return byteCounts;
+    }
+
+    char[] charCounts(int length) {
+        if (length > MAX_POOLED_COUNTERS) return new char[length];
+        if (charCounts.length < length) {
+            charCounts = new char[grownLength(charCounts.length, length)];
+        } else {
+            Arrays.fill(charCounts, 0, length, (char) 0);
+        }
+        return charCounts;
+    }
+
+    int[] intCounts(int length) {
+        if (length > MAX_POOLED_COUNTERS) return new int[length];
+        if (intCounts.length < length) {
+            intCounts = new int[grownLength(intCounts.length, length)];
+        } else {
+            Arrays.fill(intCounts, 0, length, 0);
+        }
+        return intCounts;
+    }
+
+    /**
+     * Almeno raddoppia, per non riallocare a ogni piccolo aumento dell'intervallo
+     */
+    private static int grownLength(int current, int needed) {
+        return Math.max(needed, Math.min(MAX_POOLED_COUNTERS, current * 2));
+    }
+}
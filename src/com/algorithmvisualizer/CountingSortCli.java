@@ -0,0 +1,292 @@
+package com.algorithmvisualizer;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Esecuzione del motore da riga di comando, senza interfaccia grafica.
+ * Legge gli interi da un file binario o di testo, li ordina con la modalità scelta,
+ * scrive l'output ordinato e stampa le statistiche del risultato.
+ * In modalità EXTERNAL l'input binario non viene caricato in memoria: il motore
+ * legge e scrive direttamente i file, tenendo in memoria solo l'istogramma.
+ * Con --storage mapped input e output binari vengono mappati e ordinati direttamente
+ * nei buffer, senza copiarli in un array sullo heap.
+ *
+ * Esempio: java -Xmx8g com.algorithmvisualizer.CountingSortCli
+ *          --input dati.bin --output ordinati.bin --mode PARALLEL
+ */
+public class CountingSortCli {
+
+    private static final int TRACE_BUFFER_CAPACITY = 4096;
+
+    // Configurazione (modificabile da riga di comando)
+    private Path inputPath;
+    private Path outputPath;
+    private CountingSortIO.Format inputFormat;
+    private CountingSortIO.Format outputFormat;
+    private ByteOrder byteOrder = ByteOrder.LITTLE_ENDIAN;
+    private CountingSortEngine.EngineMode mode = CountingSortEngine.EngineMode.SEQUENTIAL;
+    private Integer radixDigitBits;
+    private Integer externalBufferBytes;
+    private Path traceOutputPath;
+    private int repeat = 1;
+    private boolean mappedStorage;
+    private boolean directCounts;
+
+    private final CountingSortEngine engine = new CountingSortEngine();
+
+    public static void main(String[] args) throws Exception {
+        CountingSortCli cli = new CountingSortCli();
+        try {
+            cli.parseArguments(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            printUsage();
+            System.exit(2);
+        }
+        try {
+            cli.run();
+        } catch (IOException | RuntimeException e) {
+            System.err.println(errorMessage(e));
+            System.exit(1);
+        } catch (ExecutionException e) {
+            System.err.println(errorMessage(e.getCause())); // Errore del thread del motore
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Messaggio di un errore di esecuzione, senza stack trace
+     */
+    private static String errorMessage(Throwable error) {
+        if (error instanceof NoSuchFileException) {
+            return "File non trovato: " + ((NoSuchFileException) error).getFile();
+        }
+        return "Errore: " + (error.getMessage() != null ? error.getMessage() : error.toString());
+    }
+
+    private static void printUsage() {
+        System.err.println("Uso: CountingSortCli --input <file> [--output <file>] [--format binary|text]\n"
+                + "       [--output-format binary|text] [--byte-order little|big]\n"
+                + "       [--mode SEQUENTIAL|PARALLEL|RADIX|EXTERNAL|ADAPTIVE] [--radix-bits <b>]\n"
+                + "       [--buffer-bytes <b>] [--trace-out <file>] [--repeat <n>]\n"
+                + "       [--storage heap|mapped] [--counts heap|direct]");
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Valore mancante per " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--input": inputPath = Paths.get(value); break;
+                case "--output": outputPath = Paths.get(value); break;
+                case "--format": inputFormat = parseFormat(value); break;
+                case "--output-format": outputFormat = parseFormat(value); break;
+                case "--byte-order": byteOrder = parseByteOrder(value); break;
+                case "--mode": mode = CountingSortEngine.EngineMode.valueOf(value.trim().toUpperCase(Locale.ROOT)); break;
+                case "--radix-bits": radixDigitBits = Integer.parseInt(value); break;
+                case "--buffer-bytes": externalBufferBytes = (int) Double.parseDouble(value); break;
+                case "--trace-out": traceOutputPath = Paths.get(value); break;
+                case "--repeat": repeat = Integer.parseInt(value); break;
+                case "--storage": mappedStorage = parseOffHeap(value, "mapped"); break;
+                case "--counts": directCounts = parseOffHeap(value, "direct"); break;
+                default: throw new IllegalArgumentException("Opzione sconosciuta: " + option);
+            }
+        }
+        if (repeat < 1) {
+            throw new IllegalArgumentException("Numero di ripetizioni non valido: " + repeat);
+        }
+        if (inputPath == null) {
+            throw new IllegalArgumentException("Specificare il file di input con --input");
+        }
+        if (traceOutputPath != null && mode != CountingSortEngine.EngineMode.SEQUENTIAL) {
+            throw new IllegalArgumentException("La traccia è disponibile solo in modalità SEQUENTIAL");
+        }
+        if (inputFormat == null) inputFormat = CountingSortIO.Format.forPath(inputPath);
+        if (outputFormat == null) {
+            outputFormat = outputPath != null ? CountingSortIO.Format.forPath(outputPath) : inputFormat;
+        }
+        if (mode == CountingSortEngine.EngineMode.EXTERNAL && (outputPath == null
+                || inputFormat != CountingSortIO.Format.BINARY || outputFormat != CountingSortIO.Format.BINARY)) {
+            throw new IllegalArgumentException("La modalità EXTERNAL richiede input e output binari (--output)");
+        }
+        if (mappedStorage && (mode != CountingSortEngine.EngineMode.SEQUENTIAL || traceOutputPath != null
+                || outputPath == null || inputFormat != CountingSortIO.Format.BINARY
+                || outputFormat != CountingSortIO.Format.BINARY)) {
+            throw new IllegalArgumentException("--storage mapped richiede modalità SEQUENTIAL senza traccia"
+                    + " e input e output binari (--output)");
+        }
+    }
+
+    private void run() throws IOException, InterruptedException, ExecutionException {
+        if (radixDigitBits != null) engine.setRadixDigitBits(radixDigitBits);
+        if (externalBufferBytes != null) engine.setExternalBufferBytes(externalBufferBytes);
+        CountingSortMetrics metrics = new CountingSortMetrics();
+        engine.setMetrics(metrics);
+        engine.setOffHeapCounts(directCounts);
+        if (mappedStorage) {
+            runMapped();
+            printMetrics(metrics);
+            return;
+        }
+        if (mode == CountingSortEngine.EngineMode.EXTERNAL) {
+            CountingSortResult result = null;
+            for (int i = 0; i < repeat; i++) {
+                result = engine.executeExternal(inputPath, outputPath, byteOrder);
+            }
+            System.out.println(String.format(Locale.ROOT, "Input: %s -> Output: %s (%,d elementi, fuori memoria)",
+                    inputPath, outputPath, result.getElementCount()));
+            printStatistics(result);
+            printMetrics(metrics);
+            return;
+        }
+
+        long readStart = System.nanoTime();
+        int[] data = CountingSortIO.readInts(inputPath, inputFormat, byteOrder);
+        long readNanos = System.nanoTime() - readStart;
+        System.out.println(String.format(Locale.ROOT, "Input: %s (%,d elementi, %s, lettura %.1f ms)",
+                inputPath, data.length, inputFormat, readNanos / 1e6));
+
+        CountingSortResult result = null;
+        for (int i = 0; i < repeat; i++) {
+            result = traceOutputPath == null
+                    ? engine.executeAlgorithm(data, mode)
+                    : executeWithTraceFile(data);
+        }
+        printStatistics(result);
+        printMetrics(metrics);
+
+        if (outputPath != null) {
+            long writeStart = System.nanoTime();
+            CountingSortIO.writeInts(outputPath, result.getFinalArrayState(), outputFormat, byteOrder);
+            System.out.println(String.format(Locale.ROOT, "Output: %s (%s, scrittura %.1f ms)",
+                    outputPath, outputFormat, (System.nanoTime() - writeStart) / 1e6));
+        }
+    }
+
+    /**
+     * Ordina mappando input e output in memoria: gli int restano nella page cache e il
+     * motore li legge e scrive tramite i buffer, senza copie sullo heap. Un buffer mappato
+     * è limitato a 2 GB; per file più grandi c'è la modalità EXTERNAL.
+     */
+    private void runMapped() throws IOException {
+        try (FileChannel in = FileChannel.open(inputPath, StandardOpenOption.READ)) {
+            // L'input va validato prima di aprire l'output, che viene troncato
+            long size = in.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File di " + size + " byte troppo grande per un buffer mappato:"
+                        + " usare --mode EXTERNAL");
+            }
+            if (size % Integer.BYTES != 0) {
+                throw new IOException("Dimensione del file binario non multipla di 4 byte: " + size);
+            }
+            try (FileChannel out = FileChannel.open(outputPath, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                MappedByteBuffer input = in.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                MappedByteBuffer output = out.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                input.order(byteOrder);
+                output.order(byteOrder);
+
+                CountingSortResult result = null;
+                for (int i = 0; i < repeat; i++) {
+                    result = engine.executeAlgorithm(input, output);
+                }
+                output.force();
+                System.out.println(String.format(Locale.ROOT, "Input: %s -> Output: %s (%,d elementi, mappati)",
+                        inputPath, outputPath, result.getElementCount()));
+                printStatistics(result);
+            }
+        }
+    }
+
+    /**
+     * Esegue con traccia completa scrivendo i passi su file man mano che vengono prodotti:
+     * il motore gira su un altro thread e la traccia non viene mai materializzata in memoria
+     */
+    private CountingSortResult executeWithTraceFile(int[] data) throws IOException, InterruptedException, ExecutionException {
+        CountingSortStepStream stream = new CountingSortStepStream(TRACE_BUFFER_CAPACITY,
+                CountingSortStepStream.OverflowPolicy.BLOCK);
+        FutureTask<CountingSortResult> task = new FutureTask<>(
+                () -> engine.executeStreaming(data, CountingSortEngine.TraceLevel.FULL, stream));
+        Thread engineThread = new Thread(task, "counting-sort-engine");
+        engineThread.start();
+        try (CountingSortTraceWriter writer = new CountingSortTraceWriter(traceOutputPath, data.length)) {
+            CountingSortStep step;
+            while ((step = stream.poll(1, TimeUnit.SECONDS)) != null || !stream.isDrained()) {
+                if (step != null) writer.append(step);
+            }
+            System.out.println(String.format(Locale.ROOT, "Traccia: %s (%,d passi)", traceOutputPath, writer.size()));
+        } catch (IOException | RuntimeException e) {
+            stream.cancel(); // Sblocca il motore se in attesa sul buffer
+            throw e;
+        }
+        return task.get();
+    }
+
+    private void printStatistics(CountingSortResult result) {
+        System.out.println(result);
+        System.out.println(String.format(Locale.ROOT, "Modalità: %s (parallelismo %d)",
+                result.getEngineMode(), result.getParallelism()));
+        System.out.println("Algoritmo: " + result.getSortAlgorithm()
+                + (result.getSelectionReason() != null ? " (" + result.getSelectionReason() + ")" : ""));
+        System.out.println(String.format(Locale.ROOT, "Intervallo: [%d, %d], k = %,d, contatori %s, array di conteggio %,d byte",
+                result.getMinValue(), result.getMaxValue(), result.getKeyRange(),
+                result.getCounterWidth(), result.getCountArrayBytes()));
+        if (result.getRadixStats() != null) {
+            System.out.println(result.getRadixStats());
+        }
+        StringBuilder phases = new StringBuilder("Fasi:");
+        for (CountingSortEngine.Phase phase : CountingSortEngine.Phase.values()) {
+            phases.append(String.format(Locale.ROOT, " %s %.3f ms", phase, result.getPhaseNanos(phase) / 1e6));
+        }
+        System.out.println(phases);
+        double seconds = result.getExecutionTimeNanos() / 1e9;
+        System.out.println(String.format(Locale.ROOT, "Throughput: %,.0f elementi/s, allocati %,d byte",
+                seconds > 0 ? result.getElementCount() / seconds : Double.POSITIVE_INFINITY,
+                result.getAllocatedBytes()));
+    }
+
+    /**
+     * Con più ripetizioni stampa anche la distribuzione dei tempi per fase
+     */
+    private void printMetrics(CountingSortMetrics metrics) {
+        if (repeat > 1) {
+            System.out.print(metrics.format());
+        }
+    }
+
+    private static CountingSortIO.Format parseFormat(String value) {
+        return CountingSortIO.Format.valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Interpreta le opzioni heap|&lt;alternativa&gt;: true per l'alternativa fuori heap
+     */
+    private static boolean parseOffHeap(String value, String offHeap) {
+        String normalized = value.trim().toLowerCase(Locale.ROOT);
+        if (normalized.equals("heap")) return false;
+        if (normalized.equals(offHeap)) return true;
+        throw new IllegalArgumentException("Valore non valido: " + value + " (heap o " + offHeap + ")");
+    }
+
+    private static ByteOrder parseByteOrder(String value) {
+        switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "little": return ByteOrder.LITTLE_ENDIAN;
+            case "big": return ByteOrder.BIG_ENDIAN;
+            default: throw new IllegalArgumentException("Ordine dei byte non valido: " + value);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.algorithmvisualizer;
+
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+
+/**
+ * Stato di una singola invocazione del motore: contatori, tempi per fase, traccia
+ * e statistiche da riportare nel risultato. Il motore ne crea uno per ogni chiamata
+ * e lo passa ai propri metodi, così la stessa istanza di {@link CountingSortEngine}
+ * può eseguire più ordinamenti in contemporanea da thread diversi.
+ * Non è thread-safe: appartiene al thread che esegue l'invocazione.
+ */
+final class CountingSortContext {
+
+    /** Elementi tra due notifiche di avanzamento (potenza di 2) nei percorsi tracciati */
+    static final int PROGRESS_INTERVAL = 1 << 10;
+
+    // Contatori per analisi performance (il Counting Sort non scambia elementi: gli scambi restano a zero)
+    long comparisons;
+    long memoryAccesses;
+    CountingSortTrace trace;
+    final CountingSortEngine.TraceLevel traceLevel;
+    long elementCount;
+    long minValue;
+    long maxValue;
+    CountingSortEngine.CounterWidth counterWidth;
+    CountingSortEngine.EngineMode executedMode = CountingSortEngine.EngineMode.SEQUENTIAL;
+    int parallelism = 1;
+    long[] phaseNanos = new long[CountingSortEngine.Phase.values().length];
+    CountingSortRadixStats radixStats;
+    CountingSortEngine.SortAlgorithm sortAlgorithm = CountingSortEngine.SortAlgorithm.COUNTING;
+    String selectionReason;
+    CountingSortStepStream stepStream; // Destinazione dei passi in streaming
+
+    // Configurazione letta dal motore all'inizio dell'invocazione
+    private final Consumer<CountingSortStep> stepCallback;
+    private final CountingSortEngine.ProgressListener progressListener;
+    private final CountingSortMetrics metrics;
+    private final long allocatedBytesAtStart; // -1 se l'allocazione non viene misurata
+    private CountingSortPhaseEvent.Span phaseEvent; // Evento JFR della fase in corso, null se disabilitati
+
+    // Cella modificata dal passo in corso di registrazione (delta della traccia)
+    private int pendingIndex = CountingSortStep.NO_CHANGE;
+    private int pendingOldValue;
+    private int pendingNewValue;
+
+    CountingSortContext(int n, CountingSortEngine.TraceLevel level, Consumer<CountingSortStep> stepCallback,
+                        CountingSortEngine.ProgressListener progressListener, CountingSortMetrics metrics) {
+        this.traceLevel = level;
+        this.elementCount = n;
+        this.counterWidth = CountingSortEngine.CounterWidth.forElementCount(n);
+        this.trace = level == CountingSortEngine.TraceLevel.NONE ? null : new CountingSortTrace(n);
+        this.stepCallback = stepCallback;
+        this.progressListener = progressListener;
+        this.metrics = metrics;
+        this.allocatedBytesAtStart = metrics != null ? CountingSortMetrics.currentThreadAllocatedBytes() : -1;
+        this.phaseEvent = CountingSortPhaseEvent.begin(); // Il motore avvia la prima fase subito dopo
+    }
+
+    /**
+     * Registra la durata di una fase a partire dall'istante indicato e ne notifica la fine.
+     * Chiude l'evento JFR della fase e, tranne dopo OUTPUT, apre quello della successiva.
+     * @return L'istante corrente, inizio della fase successiva
+     * @throws CancellationException se il thread è stato interrotto
+     */
+    long recordPhase(CountingSortEngine.Phase phase, long start) {
+        long now = System.nanoTime();
+        phaseNanos[phase.ordinal()] = now - start;
+        // Come per phaseNanos, la fase successiva inizia adesso: la chiusura dell'evento ne fa parte
+        CountingSortPhaseEvent.Span finished = phaseEvent;
+        phaseEvent = phase == CountingSortEngine.Phase.OUTPUT ? null : CountingSortPhaseEvent.begin();
+        CountingSortPhaseEvent.commit(finished, phase, executedMode, sortAlgorithm, elementCount,
+                elementCount == 0 ? 0 : maxValue - minValue + 1, now - start);
+        checkCancelled();
+        if (progressListener != null) progressListener.onProgress(phase, elementCount, elementCount);
+        return now;
+    }
+
+    /**
+     * Avanzamento all'interno di una fase dei percorsi tracciati: ogni
+     * {@link #PROGRESS_INTERVAL} elementi controlla l'interruzione e notifica il listener
+     * @throws CancellationException se il thread è stato interrotto
+     */
+    void progress(CountingSortEngine.Phase phase, long done, long total) {
+        if ((done & (PROGRESS_INTERVAL - 1)) != 0) return;
+        checkCancelled();
+        if (progressListener != null) progressListener.onProgress(phase, done, total);
+    }
+
+    /**
+     * Termina l'invocazione se il thread che la esegue è stato interrotto.
+     * Lo stato di interruzione resta impostato per il chiamante (es. un executor).
+     */
+    static void checkCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Esecuzione interrotta");
+        }
+    }
+
+    /**
+     * Indica se un passo del tipo indicato va registrato con il livello di traccia corrente
+     */
+    boolean records(boolean isStateChange) {
+        return isStateChange ? traceLevel != CountingSortEngine.TraceLevel.NONE
+                : traceLevel == CountingSortEngine.TraceLevel.FULL;
+    }
+
+    /**
+     * Scrive un elemento registrando la modifica come delta del prossimo passo
+     */
+    void writeTracked(int[] arr, int index, int value) {
+        pendingIndex = index;
+        pendingOldValue = arr[index];
+        pendingNewValue = value;
+        arr[index] = value;
+    }
+
+    /**
+     * Aggiunge un passo all'esecuzione dell'algoritmo per il tracking.
+     * Il passo memorizza solo l'ultima scrittura registrata con {@link #writeTracked};
+     * la traccia decide quando salvare uno snapshot completo (keyframe).
+     * La traccia lo salva per colonne: un {@link CountingSortStep} viene creato solo se
+     * c'è uno stream o una callback che lo riceve.
+     * @param isStateChange Indica se questo step rappresenta un cambio di stato principale (es. inizio passata, fine algoritmo)
+     * o un'operazione intermedia (es. confronto). Utile per la visualizzazione.
+     */
+    void addStep(CountingSortStep.Opcode opcode, int operand1, int operand2, int index1, int index2,
+                 int[] currentArrayState, boolean isStateChange) {
+        int stepIndex = trace.size();
+        long timestamp = trace.nextTimestamp();
+        int[] keyframeState = trace.keyframeFor(currentArrayState);
+        trace.add(opcode, operand1, operand2, index1, index2, comparisons, memoryAccesses,
+                pendingIndex, pendingOldValue, pendingNewValue, keyframeState, isStateChange);
+        if (stepStream != null || stepCallback != null) {
+            CountingSortStep step = new CountingSortStep(opcode, operand1, operand2, index1, index2,
+                    timestamp, comparisons, 0, memoryAccesses, pendingIndex, pendingOldValue, pendingNewValue,
+                    keyframeState, isStateChange, trace.isRetainingSteps() ? trace : null, stepIndex);
+            if (stepStream != null) stepStream.publish(step);
+            if (stepCallback != null) stepCallback.accept(step);
+        }
+        pendingIndex = CountingSortStep.NO_CHANGE;
+    }
+
+    /**
+     * Chiude l'invocazione e raccoglie statistiche e traccia nel risultato,
+     * aggiornando il registro delle metriche
+     */
+    CountingSortResult buildResult(Object resultData, int[] permutation, long startTime) {
+        long endTime = System.nanoTime();
+        long executionTimeNanos = endTime - startTime;
+        if (stepStream != null) executionTimeNanos -= stepStream.getBlockedNanos();
+        if (trace != null) trace.finish();
+        long allocatedBytes = allocatedBytesAtStart >= 0
+                ? CountingSortMetrics.currentThreadAllocatedBytes() - allocatedBytesAtStart : -1;
+
+        CountingSortResult result = new CountingSortResult(
+            resultData,
+            elementCount,
+            executionTimeNanos,
+            comparisons,
+            0,
+            memoryAccesses,
+            allocatedBytes,
+            sortAlgorithm.getComplexity(),
+            sortAlgorithm,
+            selectionReason,
+            minValue,
+            maxValue,
+            counterWidth,
+            executedMode,
+            parallelism,
+            phaseNanos,
+            permutation,
+            radixStats,
+            trace != null && trace.isRetainingSteps() ? trace : null
+        );
+        if (metrics != null) metrics.record(result);
+        return result;
+    }
+}
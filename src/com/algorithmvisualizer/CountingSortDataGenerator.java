@@ -0,0 +1,321 @@
+package com.algorithmvisualizer;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Generatore di input per GUI e benchmark, con distribuzioni realistiche delle chiavi
+ * nell'intervallo [minValue, maxValue].
+ * L'array viene diviso ricorsivamente in blocchi riempiti in parallelo su un ForkJoinPool;
+ * ogni divisione usa SplittableRandom.split(), quindi i blocchi hanno sequenze indipendenti
+ * e, a parità di seed e di n, il risultato è identico qualunque sia il numero di thread.
+ * Le distribuzioni ordinate generano valori uniformi e li ordinano con Arrays.parallelSort.
+ */
+public class CountingSortDataGenerator {
+
+    /** Elementi per blocco: sotto questa soglia un blocco viene riempito da un solo worker */
+    static final int CHUNK_SIZE = 1 << 16;
+    /** Valori distinti predefiniti della distribuzione FEW_UNIQUE */
+    public static final int DEFAULT_UNIQUE_VALUES = 16;
+    /** Esponente predefinito della distribuzione ZIPF (Zipf classica) */
+    public static final double DEFAULT_ZIPF_EXPONENT = 1.0;
+    /** Frazione di elementi spostati nella distribuzione NEARLY_SORTED */
+    static final double NEARLY_SORTED_SWAP_RATIO = 0.01;
+    /** Deviazioni standard tra il centro e ciascun estremo dell'intervallo in GAUSSIAN */
+    static final double GAUSSIAN_SIGMAS = 4;
+
+    /**
+     * Distribuzioni delle chiavi
+     */
+    public enum Distribution {
+        /** Valori equiprobabili */
+        UNIFORM,
+        /** Legge di Zipf: il valore di rango r ha probabilità proporzionale a 1 / r^s, a partire dal minimo */
+        ZIPF,
+        /** Normale centrata nell'intervallo, troncata agli estremi */
+        GAUSSIAN,
+        /** Pochi valori distinti, scelti a caso nell'intervallo e ripetuti uniformemente */
+        FEW_UNIQUE,
+        /** Valori uniformi in ordine crescente */
+        SORTED,
+        /** Valori uniformi in ordine decrescente */
+        REVERSE_SORTED,
+        /** Valori uniformi ordinati, con l'1% degli elementi fuori posto (scambiati all'interno del blocco) */
+        NEARLY_SORTED
+    }
+
+    private final Distribution distribution;
+    private final int minValue;
+    private final int maxValue;
+    private final long seed;
+    private double zipfExponent = DEFAULT_ZIPF_EXPONENT;
+    private int uniqueValues = DEFAULT_UNIQUE_VALUES;
+    private ForkJoinPool forkJoinPool = ForkJoinPool.commonPool();
+
+    /**
+     * @param minValue Valore minimo generabile
+     * @param maxValue Valore massimo generabile (incluso)
+     * @param seed Seme: stessi parametri e stesso seme producono lo stesso array
+     */
+    public CountingSortDataGenerator(Distribution distribution, int minValue, int maxValue, long seed) {
+        if (minValue > maxValue) {
+            throw new IllegalArgumentException("Intervallo di valori vuoto: [" + minValue + ", " + maxValue + "]");
+        }
+        this.distribution = Objects.requireNonNull(distribution);
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+        this.seed = seed;
+    }
+
+    /**
+     * Genera un nuovo array di n elementi
+     */
+    public int[] generate(int n) {
+        if (n < 0) throw new IllegalArgumentException("Dimensione negativa: " + n);
+        int[] data = new int[n];
+        fill(data, 0, n);
+        return data;
+    }
+
+    /**
+     * Riempie l'intervallo [from, to) dell'array indicato
+     */
+    public void fill(int[] target, int from, int to) {
+        if (from < 0 || from > to || to > target.length) {
+            throw new IndexOutOfBoundsException("Intervallo [" + from + ", " + to + ") fuori dall'array di "
+                    + target.length + " elementi");
+        }
+        // Tre sequenze indipendenti: valori distinti di FEW_UNIQUE, riempimento e scambi di NEARLY_SORTED
+        SplittableRandom root = new SplittableRandom(seed);
+        int[] keys = distribution == Distribution.FEW_UNIQUE ? uniqueKeys(root.split()) : null;
+        ZipfSampler zipf = distribution == Distribution.ZIPF
+                ? new ZipfSampler((long) maxValue - minValue + 1, zipfExponent) : null;
+        forkJoinPool.invoke(new FillTask(target, from, to, root.split(), false, keys, zipf));
+
+        switch (distribution) {
+            case SORTED:
+                Arrays.parallelSort(target, from, to);
+                break;
+            case REVERSE_SORTED:
+                Arrays.parallelSort(target, from, to);
+                for (int i = from, j = to - 1; i < j; i++, j--) {
+                    int value = target[i];
+                    target[i] = target[j];
+                    target[j] = value;
+                }
+                break;
+            case NEARLY_SORTED:
+                Arrays.parallelSort(target, from, to);
+                forkJoinPool.invoke(new FillTask(target, from, to, root.split(), true, null, null));
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Valori distinti di FEW_UNIQUE (meno se l'intervallo è più piccolo)
+     */
+    private int[] uniqueKeys(SplittableRandom random) {
+        long range = (long) maxValue - minValue + 1;
+        int count = (int) Math.min(uniqueValues, range);
+        int[] keys = new int[count];
+        for (int i = 0; i < count; i++) {
+            boolean duplicate;
+            do {
+                keys[i] = (int) (minValue + random.nextLong(range));
+                duplicate = false;
+                for (int j = 0; j < i && !duplicate; j++) duplicate = keys[j] == keys[i];
+            } while (duplicate);
+        }
+        return keys;
+    }
+
+    /**
+     * Riempie un blocco contiguo con un solo generatore
+     */
+    private void fillChunk(int[] target, int from, int to, SplittableRandom random, int[] keys, ZipfSampler zipf) {
+        long range = (long) maxValue - minValue + 1;
+        switch (distribution) {
+            case ZIPF:
+                for (int i = from; i < to; i++) {
+                    target[i] = (int) (minValue + zipf.sample(random) - 1);
+                }
+                break;
+            case GAUSSIAN: {
+                double mean = minValue + (range - 1) / 2.0;
+                double sigma = range / (2 * GAUSSIAN_SIGMAS);
+                // Box-Muller (SplittableRandom non ha nextGaussian su Java 8): due valori per
+                // coppia di uniformi; quelli fuori intervallo si scartano, senza accumuli agli estremi
+                for (int i = from; i < to; ) {
+                    double radius = sigma * Math.sqrt(-2 * Math.log(1 - random.nextDouble()));
+                    double angle = 2 * Math.PI * random.nextDouble();
+                    double first = Math.rint(mean + radius * Math.cos(angle));
+                    double second = Math.rint(mean + radius * Math.sin(angle));
+                    if (first >= minValue && first <= maxValue) target[i++] = (int) first;
+                    if (i < to && second >= minValue && second <= maxValue) target[i++] = (int) second;
+                }
+                break;
+            }
+            case FEW_UNIQUE:
+                for (int i = from; i < to; i++) {
+                    target[i] = keys[random.nextInt(keys.length)];
+                }
+                break;
+            default:
+                for (int i = from; i < to; i++) {
+                    target[i] = (int) (minValue + random.nextLong(range));
+                }
+                break;
+        }
+    }
+
+    /**
+     * Scambia a coppie l'1% degli elementi di un blocco ordinato, entro il blocco
+     */
+    private static void perturbChunk(int[] target, int from, int to, SplittableRandom random) {
+        int length = to - from;
+        if (length < 2) return;
+        long swaps = Math.round(length * NEARLY_SORTED_SWAP_RATIO / 2);
+        for (long s = 0; s < swaps; s++) {
+            int i = from + random.nextInt(length);
+            int j = from + random.nextInt(length);
+            int value = target[i];
+            target[i] = target[j];
+            target[j] = value;
+        }
+    }
+
+    /**
+     * Divisione ricorsiva in blocchi: il generatore viene diviso prima di biforcare,
+     * quindi la sequenza di ogni blocco dipende solo dalla sua posizione
+     */
+    private final class FillTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] target;
+        private final int from;
+        private final int to;
+        private final SplittableRandom random;
+        private final boolean perturb;
+        private final int[] keys;
+        private final ZipfSampler zipf;
+
+        FillTask(int[] target, int from, int to, SplittableRandom random, boolean perturb,
+                 int[] keys, ZipfSampler zipf) {
+            this.target = target;
+            this.from = from;
+            this.to = to;
+            this.random = random;
+            this.perturb = perturb;
+            this.keys = keys;
+            this.zipf = zipf;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                if (perturb) {
+                    perturbChunk(target, from, to, random);
+                } else {
+                    fillChunk(target, from, to, random, keys, zipf);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            FillTask left = new FillTask(target, from, mid, random.split(), perturb, keys, zipf);
+            FillTask right = new FillTask(target, mid, to, random, perturb, keys, zipf);
+            invokeAll(left, right);
+        }
+    }
+
+    /**
+     * Campionamento di Zipf su [1, n] per rejection-inversion (Hörmann e Derflinger):
+     * tempo costante per campione anche con n fino a 2^32, senza tabelle.
+     * Immutabile, condiviso dai worker.
+     */
+    private static final class ZipfSampler {
+        private final long n;
+        private final double exponent;
+        private final double hIntegralX1;
+        private final double hIntegralN;
+        private final double s;
+
+        ZipfSampler(long n, double exponent) {
+            this.n = n;
+            this.exponent = exponent;
+            this.hIntegralX1 = hIntegral(1.5) - 1;
+            this.hIntegralN = hIntegral(n + 0.5);
+            this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+        }
+
+        long sample(SplittableRandom random) {
+            while (true) {
+                double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+                double x = hIntegralInverse(u);
+                long k = (long) (x + 0.5);
+                if (k < 1) k = 1;
+                else if (k > n) k = n;
+                if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) return k;
+            }
+        }
+
+        private double h(double x) {
+            return Math.exp(-exponent * Math.log(x));
+        }
+
+        private double hIntegral(double x) {
+            double logX = Math.log(x);
+            return helper2((1 - exponent) * logX) * logX;
+        }
+
+        private double hIntegralInverse(double x) {
+            double t = x * (1 - exponent);
+            if (t < -1) t = -1; // Errori di arrotondamento vicino al limite
+            return Math.exp(helper1(t) * x);
+        }
+
+        /** log(1 + x) / x, stabile vicino a zero */
+        private static double helper1(double x) {
+            return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+        }
+
+        /** (exp(x) - 1) / x, stabile vicino a zero */
+        private static double helper2(double x) {
+            return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+        }
+    }
+
+    /**
+     * Imposta l'esponente s della distribuzione ZIPF (maggiore di zero; più è alto, più è sbilanciata)
+     */
+    public void setZipfExponent(double exponent) {
+        if (!(exponent > 0)) throw new IllegalArgumentException("Esponente di Zipf non valido: " + exponent);
+        this.zipfExponent = exponent;
+    }
+
+    /**
+     * Imposta il numero di valori distinti della distribuzione FEW_UNIQUE
+     */
+    public void setUniqueValues(int count) {
+        if (count <= 0) throw new IllegalArgumentException("Numero di valori distinti non valido: " + count);
+        this.uniqueValues = count;
+    }
+
+    /**
+     * Imposta il pool su cui riempire i blocchi (predefinito: common pool)
+     */
+    public void setForkJoinPool(ForkJoinPool pool) {
+        this.forkJoinPool = Objects.requireNonNull(pool);
+    }
+
+    public Distribution getDistribution() { return distribution; }
+    public int getMinValue() { return minValue; }
+    public int getMaxValue() { return maxValue; }
+    public long getSeed() { return seed; }
+    public double getZipfExponent() { return zipfExponent; }
+    public int getUniqueValues() { return uniqueValues; }
+}
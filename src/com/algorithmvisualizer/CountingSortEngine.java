@@ -1,154 +1,959 @@
 package com.algorithmvisualizer;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
 
 /**
  * Motore degli algoritmi - Gestisce la logica di business per l'algoritmo
  * di ordinamento Counting Sort.
+ * Il motore è thread-safe e riutilizzabile: lo stato di ogni invocazione sta in un
+ * {@link CountingSortContext} e gli array di conteggio vengono da un pool per thread,
+ * quindi la stessa istanza può servire più thread in contemporanea. La configurazione
+ * modificata durante un'esecuzione vale dall'invocazione successiva.
+ * Un'esecuzione sequenziale o adattiva può essere annullata interrompendo il thread che
+ * la esegue: il motore controlla l'interruzione tra le fasi (e ogni 1024 elementi quando
+ * registra i passi) e termina con una {@link java.util.concurrent.CancellationException}.
  */
 public class CountingSortEngine {
 
-    // Contatori per analisi performance
-    private long comparisons;
-    private long swaps;
-    private long memoryAccesses;
-    private List<CountingSortStep> executionSteps;
-    private Consumer<CountingSortStep> stepCallback;
+    /** Dimensione minima dell'input per cui la modalità parallela conviene */
+    public static final int DEFAULT_PARALLELISM_THRESHOLD = 1 << 17;
+
+    /** Larghezza predefinita della cifra in modalità Radix: istogrammi da 2048 contatori */
+    public static final int DEFAULT_RADIX_DIGIT_BITS = 11;
+
+    /** Dimensione predefinita dei buffer di lettura e scrittura della modalità esterna */
+    public static final int DEFAULT_EXTERNAL_BUFFER_BYTES = 1 << 20;
+
+    // Configurazione, letta all'inizio di ogni invocazione; lo stato della singola
+    // esecuzione sta in un CountingSortContext, quindi il motore è thread-safe
+    private volatile Consumer<CountingSortStep> stepCallback;
+    private volatile ProgressListener progressListener;
+    private volatile CountingSortMetrics metrics; // null: nessuna metrica raccolta
+    private volatile ForkJoinPool forkJoinPool = ForkJoinPool.commonPool();
+    private volatile int parallelismThreshold = DEFAULT_PARALLELISM_THRESHOLD;
+    private volatile int radixDigitBits = DEFAULT_RADIX_DIGIT_BITS;
+    private volatile int externalBufferBytes = DEFAULT_EXTERNAL_BUFFER_BYTES;
+    private volatile boolean laneHistograms = true;
+    private volatile boolean offHeapCounts;
 
     /**
      * Costruttore - Inizializza il motore degli algoritmi
      */
     public CountingSortEngine() {
-        executionSteps = new ArrayList<>();
-        resetCounters();
     }
 
     /**
-     * Esegue l'algoritmo specificato sull'array fornito
-     * @param algorithmName Nome dell'algoritmo da eseguire
+     * Livello di dettaglio della traccia registrata durante l'esecuzione
+     */
+    public enum TraceLevel {
+        /** Nessun passo registrato: percorso veloce per l'ordinamento in produzione */
+        NONE,
+        /** Solo i passi che rappresentano un cambio di stato principale */
+        STATE_CHANGES,
+        /** Tutti i passi, compresi confronti e conteggi intermedi */
+        FULL
+    }
+
+    /**
+     * Modalità di esecuzione del motore
+     */
+    public enum EngineMode {
+        /** Un solo thread; unica modalità che supporta la registrazione dei passi */
+        SEQUENTIAL,
+        /** Istogrammi per worker su ForkJoinPool, con ricaduta sequenziale sotto la soglia */
+        PARALLEL,
+        /** Radix Sort LSD sul kernel di conteggio, per chiavi su tutto l'intervallo a 32/64 bit */
+        RADIX,
+        /** Due passate su canali, per input più grandi della memoria: vedi executeExternal */
+        EXTERNAL,
+        /** Algoritmo scelto in base a un campione dell'input, vedi {@link AdaptiveSortSelector} */
+        ADAPTIVE
+    }
+
+    /**
+     * Algoritmo effettivamente eseguito, con la relativa complessità
+     */
+    public enum SortAlgorithm {
+        /** Counting Sort sull'intervallo [min, max] */
+        COUNTING("O(n + k)"),
+        /** Radix Sort LSD a cifre di b bit */
+        RADIX("O(d(n + 2^b))"),
+        /** Arrays.sort dual-pivot, per k molto più grande di n */
+        COMPARISON("O(n log n)"),
+        /** Input già ordinato: solo la verifica e la copia */
+        ALREADY_SORTED("O(n)");
+
+        private final String complexity;
+
+        SortAlgorithm(String complexity) {
+            this.complexity = complexity;
+        }
+
+        public String getComplexity() { return complexity; }
+    }
+
+    /**
+     * Fasi dell'algoritmo, usate per i tempi riportati nel risultato
+     */
+    public enum Phase {
+        /** Ricerca di minimo e massimo */
+        FIND_RANGE,
+        /** Conteggio delle occorrenze */
+        COUNT,
+        /** Fusione degli istogrammi e somme prefisse */
+        PREFIX,
+        /** Costruzione dell'array ordinato */
+        OUTPUT
+    }
+
+    /**
+     * Avanzamento reale di un'esecuzione, notificato sul thread che la esegue
+     */
+    public interface ProgressListener {
+        /**
+         * Chiamato alla fine di ogni fase (done == total) e, quando il motore registra
+         * i passi, ogni 1024 elementi della fase. Le modalità parallela, radix ed esterna
+         * misurano le fasi per conto proprio e non notificano avanzamento.
+         * @param done Elementi già elaborati nella fase
+         * @param total Elementi da elaborare nella fase
+         */
+        void onProgress(Phase phase, long done, long total);
+    }
+
+    /**
+     * Larghezza dei contatori dell'array di conteggio. Nessun bucket può superare
+     * n occorrenze, quindi la larghezza si sceglie in base al numero di elementi
+     * e la memoria del conteggio resta proporzionale all'intervallo dei valori.
+     */
+    public enum CounterWidth {
+        /** Contatori a 8 bit senza segno, fino a 255 elementi */
+        BYTE(1, 0xFFL),
+        /** Contatori a 16 bit senza segno, fino a 65535 elementi */
+        SHORT(2, 0xFFFFL),
+        /** Contatori a 32 bit */
+        INT(4, Integer.MAX_VALUE),
+        /** Contatori a 64 bit, per sorgenti più grandi di un array Java */
+        LONG(8, Long.MAX_VALUE);
+
+        private static final CounterWidth[] WIDTHS = values(); // values() crea una copia a ogni chiamata
+
+        private final int bytesPerCounter;
+        private final long maxCount;
+
+        CounterWidth(int bytesPerCounter, long maxCount) {
+            this.bytesPerCounter = bytesPerCounter;
+            this.maxCount = maxCount;
+        }
+
+        public int getBytesPerCounter() { return bytesPerCounter; }
+        public long getMaxCount() { return maxCount; }
+
+        /**
+         * Sceglie la larghezza più stretta in grado di contare n elementi
+         */
+        public static CounterWidth forElementCount(long n) {
+            for (CounterWidth width : WIDTHS) {
+                if (n <= width.maxCount) return width;
+            }
+            return LONG;
+        }
+    }
+
+    /**
+     * Esegue l'algoritmo specificato sull'array fornito registrando tutti i passi
      * @param data Array di dati su cui operare
      * @return Risultato dell'esecuzione con statistiche
      */
     public CountingSortResult executeAlgorithm(int[] data) {
-        resetCounters();
-        executionSteps.clear();
+        return executeAlgorithm(data, TraceLevel.FULL);
+    }
 
+    /**
+     * Esegue l'algoritmo sull'array fornito con il livello di traccia indicato
+     * @param data Array di dati su cui operare (non viene modificato)
+     * @param level Livello di traccia; con NONE non viene registrato alcun passo
+     * @return Risultato dell'esecuzione con statistiche
+     */
+    public CountingSortResult executeAlgorithm(int[] data, TraceLevel level) {
+        return executeAlgorithm(data, EngineMode.SEQUENTIAL, level);
+    }
+
+    /**
+     * Esegue l'algoritmo nella modalità indicata senza registrare passi
+     * @param data Array di dati su cui operare (non viene modificato)
+     * @param mode Modalità di esecuzione
+     * @return Risultato dell'esecuzione con statistiche e tempi per fase
+     */
+    public CountingSortResult executeAlgorithm(int[] data, EngineMode mode) {
+        return executeAlgorithm(data, mode, TraceLevel.NONE);
+    }
+
+    /**
+     * Esegue l'algoritmo nella modalità e con il livello di traccia indicati
+     * @param data Array di dati su cui operare (non viene modificato)
+     * @param mode Modalità di esecuzione
+     * @param level Livello di traccia; le modalità diverse da SEQUENTIAL accettano solo NONE
+     * @throws IllegalArgumentException per la modalità EXTERNAL o una traccia non supportata
+     * @return Risultato dell'esecuzione con statistiche
+     */
+    public CountingSortResult executeAlgorithm(int[] data, EngineMode mode, TraceLevel level) {
+        if (mode == EngineMode.EXTERNAL) {
+            throw new IllegalArgumentException("La modalità EXTERNAL lavora su canali: usare executeExternal");
+        }
+        if (mode != EngineMode.SEQUENTIAL && level != TraceLevel.NONE) {
+            throw new IllegalArgumentException("La modalità " + mode + " non supporta la traccia " + level);
+        }
+        CountingSortContext ctx = newContext(data.length, level);
+
+        ForkJoinPool pool = forkJoinPool;
         long startTime = System.nanoTime();
-        int[] resultData = data.clone(); // Lavoriamo su una copia
+        int[] resultData;
+        if (mode == EngineMode.ADAPTIVE) {
+            resultData = sortAdaptive(ctx, data);
+        } else if (mode == EngineMode.PARALLEL && data.length >= parallelismThreshold && pool.getParallelism() > 1) {
+            resultData = countingSortParallel(ctx, data, pool);
+        } else if (mode == EngineMode.RADIX) {
+            RadixSort radixSort = new RadixSort(radixDigitBits);
+            resultData = radixSort.sort(data);
+            finishRadix(ctx, radixSort, data.length);
+        } else if (ctx.trace == null) {
+            resultData = countingSortUntraced(ctx, data);
+        } else {
+            resultData = countingSort(ctx, data); // Il percorso tracciato non modifica l'input
+        }
 
-        resultData = countingSort(resultData);
+        return ctx.buildResult(resultData, null, startTime);
+    }
 
-        long endTime = System.nanoTime();
-        long executionTime = (endTime - startTime) / 1_000_000; // Conversione in millisecondi
+    /**
+     * Ordina chiavi a 64 bit: con un intervallo stretto (k al massimo 4n) conta gli
+     * scostamenti dal minimo in un array di int, altrimenti usa il Radix Sort LSD
+     * @param data Array di dati su cui operare (non viene modificato)
+     * @return Risultato con l'array ordinato in {@link CountingSortResult#getFinalLongArrayState()}
+     */
+    public CountingSortResult executeAlgorithm(long[] data) {
+        int n = data.length;
+        CountingSortContext ctx = newContext(n, TraceLevel.NONE);
+        long startTime = System.nanoTime();
+        if (n == 0) {
+            return ctx.buildResult(new long[0], null, startTime);
+        }
+        long[] minMax = CountingSortKernels.minMax(data);
+        long min = minMax[0];
+        long max = minMax[1];
+        long span = max - min; // Negativo se l'intervallo supera Long.MAX_VALUE
+        if (span < 0 || span >= Math.min((long) AdaptiveSortSelector.COUNTING_RANGE_FACTOR * n,
+                CountingSortKernels.MAX_COUNT_ARRAY_LENGTH)) {
+            RadixSort radixSort = new RadixSort(radixDigitBits);
+            long[] resultData = radixSort.sort(data);
+            finishRadix(ctx, radixSort, n);
+            ctx.selectionReason = span < 0 ? "k oltre 2^63" : String.format(Locale.ROOT,
+                    "k = %,d > %d * n: Radix Sort LSD", span + 1, AdaptiveSortSelector.COUNTING_RANGE_FACTOR);
+            return ctx.buildResult(resultData, null, startTime);
+        }
 
-        return new CountingSortResult(
-            resultData, 
-            executionTime,
-            comparisons,
-            swaps,
-            memoryAccesses,
-            "O(n)",
-            new ArrayList<>(executionSteps)
-        );
+        ctx.minValue = min;
+        ctx.maxValue = max;
+        ctx.counterWidth = CounterWidth.INT;
+        int range = (int) span + 1;
+        long now = ctx.recordPhase(Phase.FIND_RANGE, startTime);
+        int[] count = CountingSortBufferPool.current().intCounts(range);
+        CountingSortKernels.histogram(data, min, count);
+        now = ctx.recordPhase(Phase.COUNT, now);
+        long[] resultData = new long[n];
+        CountingSortKernels.fill(count, range, min, resultData);
+        ctx.recordPhase(Phase.OUTPUT, now);
+        ctx.comparisons = 2L * (n - 1);
+        ctx.memoryAccesses = (n - 1) + n + (long) n;
+        return ctx.buildResult(resultData, null, startTime);
+    }
+
+    /**
+     * Ordina byte con segno su 256 bucket fissi, senza cercare minimo e massimo: si leggono
+     * dal primo e dall'ultimo bucket non vuoto, e il riempimento parte dal primo
+     * @param data Array di dati su cui operare (non viene modificato)
+     * @return Risultato con l'array ordinato in {@link CountingSortResult#getFinalByteArrayState()}
+     */
+    public CountingSortResult executeAlgorithm(byte[] data) {
+        int n = data.length;
+        CountingSortContext ctx = newContext(n, TraceLevel.NONE);
+        long startTime = System.nanoTime();
+        byte[] resultData = new byte[n];
+        if (n > 0) {
+            int buckets = CountingSortKernels.BYTE_BUCKETS;
+            CountingSortBufferPool pool = CountingSortBufferPool.current();
+            int[] count;
+            if (laneHistograms && CountingSortKernels.useLanes(n, buckets)) {
+                // I byte si ripetono quasi sempre: stesse corsie del percorso int
+                count = pool.intCounts(buckets * CountingSortKernels.HISTOGRAM_LANES);
+                CountingSortKernels.histogramLanes(data, count);
+                CountingSortKernels.collapseLanes(count, buckets);
+            } else {
+                count = pool.intCounts(buckets);
+                CountingSortKernels.histogram(data, count);
+            }
+            long now = ctx.recordPhase(Phase.COUNT, startTime);
+            int first = CountingSortKernels.firstBucket(count, buckets);
+            int last = CountingSortKernels.lastBucket(count, buckets);
+            CountingSortKernels.fill(count, first, last, resultData);
+            finishFixedDomain(ctx, first + Byte.MIN_VALUE, last + Byte.MIN_VALUE, now);
+        }
+        return ctx.buildResult(resultData, null, startTime);
+    }
+
+    /**
+     * Ordina short con segno su 65536 bucket fissi, senza cercare minimo e massimo
+     * @param data Array di dati su cui operare (non viene modificato)
+     * @return Risultato con l'array ordinato in {@link CountingSortResult#getFinalShortArrayState()}
+     */
+    public CountingSortResult executeAlgorithm(short[] data) {
+        int n = data.length;
+        CountingSortContext ctx = newContext(n, TraceLevel.NONE);
+        long startTime = System.nanoTime();
+        short[] resultData = new short[n];
+        if (n > 0) {
+            int buckets = CountingSortKernels.CHAR_BUCKETS;
+            int[] count = CountingSortBufferPool.current().intCounts(buckets);
+            CountingSortKernels.histogram(data, count);
+            long now = ctx.recordPhase(Phase.COUNT, startTime);
+            int first = CountingSortKernels.firstBucket(count, buckets);
+            int last = CountingSortKernels.lastBucket(count, buckets);
+            CountingSortKernels.fill(count, first, last, resultData);
+            finishFixedDomain(ctx, first + Short.MIN_VALUE, last + Short.MIN_VALUE, now);
+        }
+        return ctx.buildResult(resultData, null, startTime);
+    }
+
+    /**
+     * Ordina char (interi senza segno a 16 bit) su 65536 bucket fissi, senza cercare minimo e massimo
+     * @param data Array di dati su cui operare (non viene modificato)
+     * @return Risultato con l'array ordinato in {@link CountingSortResult#getFinalCharArrayState()}
+     */
+    public CountingSortResult executeAlgorithm(char[] data) {
+        int n = data.length;
+        CountingSortContext ctx = newContext(n, TraceLevel.NONE);
+        long startTime = System.nanoTime();
+        char[] resultData = new char[n];
+        if (n > 0) {
+            int buckets = CountingSortKernels.CHAR_BUCKETS;
+            int[] count = CountingSortBufferPool.current().intCounts(buckets);
+            CountingSortKernels.histogram(data, count);
+            long now = ctx.recordPhase(Phase.COUNT, startTime);
+            int first = CountingSortKernels.firstBucket(count, buckets);
+            int last = CountingSortKernels.lastBucket(count, buckets);
+            CountingSortKernels.fill(count, first, last, resultData);
+            finishFixedDomain(ctx, first, last, now);
+        }
+        return ctx.buildResult(resultData, null, startTime);
+    }
+
+    /**
+     * Statistiche comuni ai domini fissi: la fase FIND_RANGE resta a zero e non ci sono
+     * confronti, solo la lettura di ogni elemento per il conteggio e la sua scrittura
+     */
+    private static void finishFixedDomain(CountingSortContext ctx, int min, int max, long outputStart) {
+        ctx.minValue = min;
+        ctx.maxValue = max;
+        ctx.recordPhase(Phase.OUTPUT, outputStart);
+        ctx.counterWidth = CounterWidth.INT;
+        ctx.memoryAccesses = 2 * ctx.elementCount;
+    }
+
+    /**
+     * Counting Sort tra buffer di int, anche diretti o mappati su file, senza copie sullo heap:
+     * legge gli elementi tra position e limit di input e li scrive ordinati in output a
+     * partire dalla sua posizione. Le posizioni dei buffer non cambiano. Tutto l'input viene
+     * contato prima di scrivere, quindi input e output possono coincidere o sovrapporsi
+     * (ordinamento sul posto). Sullo heap resta solo l'array di conteggio, che con
+     * {@link #setOffHeapCounts} diventa anch'esso un buffer diretto.
+     * @return Risultato con statistiche e tempi per fase, senza array ordinato
+     * @throws IllegalArgumentException se output non ha spazio per tutti gli elementi
+     * o l'intervallo dei valori è troppo ampio per un array di conteggio
+     */
+    public CountingSortResult executeAlgorithm(IntBuffer input, IntBuffer output) {
+        int n = input.remaining();
+        if (output.remaining() < n) {
+            throw new IllegalArgumentException("Spazio insufficiente nell'output: " + output.remaining()
+                    + " int per " + n + " elementi");
+        }
+        CountingSortContext ctx = newContext(n, TraceLevel.NONE);
+        long startTime = System.nanoTime();
+        if (n > 0) {
+            countingSortBuffer(ctx, input, input.position(), input.limit(), output, output.position());
+        }
+        return ctx.buildResult(null, null, startTime);
+    }
+
+    /**
+     * Come {@link #executeAlgorithm(IntBuffer, IntBuffer)} su buffer di byte, letti e scritti
+     * come int a 32 bit nell'ordine dei byte di ciascun buffer (ad esempio un file mappato)
+     * @throws IllegalArgumentException se i byte dell'input non sono un multiplo di 4
+     */
+    public CountingSortResult executeAlgorithm(ByteBuffer input, ByteBuffer output) {
+        if (input.remaining() % Integer.BYTES != 0) {
+            throw new IllegalArgumentException("Input di " + input.remaining() + " byte: non è una sequenza di int");
+        }
+        return executeAlgorithm(input.asIntBuffer(), output.asIntBuffer());
+    }
+
+    /**
+     * Counting Sort fuori memoria: legge int binari a 32 bit dal canale di input e
+     * scrive la sequenza ordinata sul canale di output, tenendo in memoria solo
+     * l'istogramma e i buffer (vedi {@link ExternalCountingSort}).
+     * I canali non vengono chiusi.
+     * @param order Ordine dei byte degli int, sia in lettura sia in scrittura
+     * @return Risultato con statistiche e tempi per fase, senza array ordinato
+     * @throws IOException se la lettura o la scrittura falliscono o l'input è troncato
+     */
+    public CountingSortResult executeExternal(ReadableByteChannel input, WritableByteChannel output,
+                                              ByteOrder order) throws IOException {
+        CountingSortContext ctx = newContext(0, TraceLevel.NONE);
+        long startTime = System.nanoTime();
+        ExternalCountingSort externalSort = new ExternalCountingSort(externalBufferBytes, order);
+        long n = externalSort.sort(input, output);
+        ctx.elementCount = n;
+        ctx.executedMode = EngineMode.EXTERNAL;
+        ctx.counterWidth = CounterWidth.LONG;
+        ctx.phaseNanos = externalSort.getPhaseNanos();
+        if (n > 0) {
+            ctx.minValue = externalSort.getMinValue();
+            ctx.maxValue = externalSort.getMaxValue();
+            ctx.comparisons = 2L * (n - 1);
+            ctx.memoryAccesses = (n - 1) + n + n;
+        }
+        return ctx.buildResult(null, null, startTime);
+    }
+
+    /**
+     * Counting Sort fuori memoria tra due file di int binari, vedi
+     * {@link #executeExternal(ReadableByteChannel, WritableByteChannel, ByteOrder)}
+     */
+    public CountingSortResult executeExternal(Path input, Path output, ByteOrder order) throws IOException {
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return executeExternal(in, out, order);
+        }
+    }
+
+    /**
+     * Esegue l'algoritmo consegnando i passi al consumatore attraverso un buffer limitato
+     * invece di conservarli: la memoria della traccia resta costante e il consumatore
+     * può iniziare a visualizzare fin dal primo passo. I passi ricevuti vanno applicati
+     * in ordine con {@link CountingSortStep#applyTo(int[])}.
+     * Lo stream viene chiuso al termine (o fallisce con l'errore del motore). Il tempo
+     * di esecuzione riportato esclude le attese dovute a un consumatore lento.
+     * @param data Array di dati su cui operare (non viene modificato)
+     * @param level Livello di traccia dei passi da consegnare
+     * @param stream Buffer verso il consumatore
+     * @return Risultato con statistiche, senza passi
+     * @throws java.util.concurrent.CancellationException se il consumatore annulla lo stream
+     */
+    public CountingSortResult executeStreaming(int[] data, TraceLevel level, CountingSortStepStream stream) {
+        CountingSortContext ctx = newContext(data.length, level);
+        if (ctx.trace != null) ctx.trace = CountingSortTrace.streaming();
+        ctx.stepStream = stream;
+        try {
+            long startTime = System.nanoTime();
+            int[] resultData = ctx.trace == null ? countingSortUntraced(ctx, data) : countingSort(ctx, data);
+            CountingSortResult result = ctx.buildResult(resultData, null, startTime);
+            stream.close();
+            return result;
+        } catch (RuntimeException | Error e) {
+            stream.fail(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Ordina l'array sul posto, vedi {@link #sort(int[], int, int)}
+     */
+    public void sort(int[] data) {
+        sort(data, 0, data.length);
+    }
+
+    /**
+     * Ordina sul posto l'intervallo [from, to), senza risultato, statistiche né metriche:
+     * è il percorso per molti ordinamenti piccoli eseguiti in contemporanea. I contatori
+     * vengono dal pool del thread chiamante e l'output sovrascrive l'input, quindi a regime
+     * non viene allocato nulla. Come la modalità adattiva, per input piccoli o con k molto
+     * più grande di n usa Arrays.sort.
+     * @throws ArrayIndexOutOfBoundsException se l'intervallo esce dall'array
+     * @throws IllegalArgumentException se from > to
+     */
+    public void sort(int[] data, int from, int to) {
+        if (from > to) {
+            throw new IllegalArgumentException("from (" + from + ") > to (" + to + ")");
+        }
+        if (from < 0 || to > data.length) {
+            throw new ArrayIndexOutOfBoundsException("Intervallo [" + from + ", " + to
+                    + ") fuori da un array di " + data.length + " elementi");
+        }
+        int n = to - from;
+        if (n < AdaptiveSortSelector.SMALL_INPUT) {
+            Arrays.sort(data, from, to);
+            return;
+        }
+        long minMax = CountingSortKernels.minMax(data, from, to);
+        int min = CountingSortKernels.unpackMin(minMax);
+        long k = (long) CountingSortKernels.unpackMax(minMax) - min + 1;
+        if (k > (long) AdaptiveSortSelector.COUNTING_RANGE_FACTOR * n) {
+            Arrays.sort(data, from, to);
+            return;
+        }
+        int range = (int) k;
+        CountingSortBufferPool buffers = CountingSortBufferPool.current();
+        if (laneHistograms && CountingSortKernels.useLanes(n, range)) {
+            int[] lanes = buffers.intCounts(range * CountingSortKernels.HISTOGRAM_LANES);
+            CountingSortKernels.histogramLanes(data, from, to, min, lanes);
+            CountingSortKernels.fillLanes(lanes, range, min, data, from);
+            return;
+        }
+        switch (CounterWidth.forElementCount(n)) {
+            case BYTE: {
+                byte[] count = buffers.byteCounts(range);
+                CountingSortKernels.histogram(data, from, to, min, count);
+                CountingSortKernels.fill(count, range, min, data, from);
+                break;
+            }
+            case SHORT: {
+                char[] count = buffers.charCounts(range);
+                CountingSortKernels.histogram(data, from, to, min, count);
+                CountingSortKernels.fill(count, range, min, data, from);
+                break;
+            }
+            default: {
+                int[] count = buffers.intCounts(range);
+                CountingSortKernels.histogram(data, from, to, min, count);
+                CountingSortKernels.fill(count, range, min, data, from);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Counting Sort tra buffer con indici assoluti. I contatori sono int (un buffer non supera
+     * 2^31 - 1 elementi): dal pool del thread oppure, con i contatori fuori heap, in un
+     * buffer diretto allocato per l'esecuzione e rilasciato dal garbage collector.
+     */
+    private void countingSortBuffer(CountingSortContext ctx, IntBuffer input, int from, int to,
+                                    IntBuffer output, int position) {
+        long start = System.nanoTime();
+        int n = to - from;
+        long minMax = CountingSortKernels.minMax(input, from, to);
+        int min = CountingSortKernels.unpackMin(minMax);
+        int max = CountingSortKernels.unpackMax(minMax);
+        ctx.minValue = min;
+        ctx.maxValue = max;
+        int range = CountingSortKernels.countArrayLength(min, max);
+        ctx.counterWidth = CounterWidth.INT;
+        long now = ctx.recordPhase(Phase.FIND_RANGE, start);
+
+        if (offHeapCounts) {
+            IntBuffer count = CountingSortKernels.directCounts(range);
+            CountingSortKernels.histogram(input, from, to, min, count);
+            now = ctx.recordPhase(Phase.COUNT, now);
+            CountingSortKernels.fill(count, range, min, output, position);
+        } else {
+            int[] count = CountingSortBufferPool.current().intCounts(range);
+            CountingSortKernels.histogram(input, from, to, min, count);
+            now = ctx.recordPhase(Phase.COUNT, now);
+            CountingSortKernels.fill(count, range, min, output, position);
+        }
+        ctx.recordPhase(Phase.OUTPUT, now);
+
+        ctx.comparisons = 2L * (n - 1);
+        ctx.memoryAccesses = (n - 1) + n + (long) n;
+    }
+
+    /**
+     * Counting Sort stabile che restituisce, oltre alle chiavi ordinate, la permutazione
+     * applicata: getPermutation()[i] è l'indice originale dell'elemento in posizione i.
+     * A parità di chiave l'ordine originale viene mantenuto, quindi la permutazione
+     * può riordinare payload paralleli con {@link CountingSortResult#reorder(long[])}.
+     * @param keys Chiavi da ordinare (non vengono modificate)
+     * @return Risultato con chiavi ordinate e permutazione stabile
+     */
+    public CountingSortResult executeStable(int[] keys) {
+        CountingSortContext ctx = newContext(keys.length, TraceLevel.NONE);
+        long startTime = System.nanoTime();
+        int n = keys.length;
+        int[] sortedKeys = new int[n];
+        int[] permutation = new int[n];
+        if (n > 0) {
+            countingSortStable(ctx, keys, sortedKeys, permutation);
+        }
+        return ctx.buildResult(sortedKeys, permutation, startTime);
+    }
+
+    /**
+     * Counting Sort stabile di record in base a una chiave intera.
+     * Le chiavi vengono estratte una sola volta in un array primitivo; i record si
+     * ottengono ordinati con {@link CountingSortResult#reorder(Object[])}.
+     * @param records Record da ordinare (non vengono modificati)
+     * @param keyExtractor Funzione che estrae la chiave di ordinamento
+     * @return Risultato con chiavi ordinate e permutazione stabile
+     */
+    public <T> CountingSortResult executeStable(T[] records, ToIntFunction<? super T> keyExtractor) {
+        int[] keys = new int[records.length];
+        for (int i = 0; i < records.length; i++) {
+            keys[i] = keyExtractor.applyAsInt(records[i]);
+        }
+        return executeStable(keys);
+    }
+
+    /**
+     * Contesto di una nuova invocazione, con la configurazione corrente del motore
+     */
+    private CountingSortContext newContext(int n, TraceLevel level) {
+        return new CountingSortContext(n, level, stepCallback, progressListener, metrics);
+    }
+
+    /**
+     * Counting Sort senza tracking: alloca solo l'array risultato, i contatori vengono
+     * dal pool del thread. Il conteggio avviene sull'intervallo [min, max] con i contatori
+     * più stretti sufficienti per n elementi. Le statistiche vengono calcolate alla fine,
+     * senza incrementi nel ciclo caldo.
+     */
+    private int[] countingSortUntraced(CountingSortContext ctx, int[] arr) {
+        int n = arr.length;
+        if (n == 0) return new int[0];
+
+        long start = System.nanoTime();
+        long minMax = CountingSortKernels.minMax(arr, 0, n);
+        return countingSortUntraced(ctx, arr, CountingSortKernels.unpackMin(minMax),
+                CountingSortKernels.unpackMax(minMax), start);
+    }
+
+    /**
+     * Counting Sort senza tracking con minimo e massimo già noti
+     * @param start Inizio della fase FIND_RANGE
+     */
+    private int[] countingSortUntraced(CountingSortContext ctx, int[] arr, int min, int max, long start) {
+        int n = arr.length;
+        ctx.minValue = min;
+        ctx.maxValue = max;
+        int range = CountingSortKernels.countArrayLength(ctx.minValue, ctx.maxValue);
+        ctx.counterWidth = CounterWidth.forElementCount(n);
+        long now = ctx.recordPhase(Phase.FIND_RANGE, start);
+
+        int[] result = new int[n];
+        CountingSortBufferPool buffers = CountingSortBufferPool.current();
+        if (laneHistograms && CountingSortKernels.useLanes(n, range)) {
+            ctx.counterWidth = CounterWidth.INT;
+            int[] lanes = buffers.intCounts(range * CountingSortKernels.HISTOGRAM_LANES);
+            CountingSortKernels.histogramLanes(arr, 0, n, min, lanes);
+            now = ctx.recordPhase(Phase.COUNT, now);
+            CountingSortKernels.fillLanes(lanes, range, min, result, 0);
+        } else switch (ctx.counterWidth) {
+            case BYTE: {
+                byte[] count = buffers.byteCounts(range);
+                CountingSortKernels.histogram(arr, 0, n, min, count);
+                now = ctx.recordPhase(Phase.COUNT, now);
+                CountingSortKernels.fill(count, range, min, result, 0);
+                break;
+            }
+            case SHORT: {
+                char[] count = buffers.charCounts(range);
+                CountingSortKernels.histogram(arr, 0, n, min, count);
+                now = ctx.recordPhase(Phase.COUNT, now);
+                CountingSortKernels.fill(count, range, min, result, 0);
+                break;
+            }
+            default: {
+                int[] count = buffers.intCounts(range);
+                CountingSortKernels.histogram(arr, 0, n, min, count);
+                now = ctx.recordPhase(Phase.COUNT, now);
+                CountingSortKernels.fill(count, range, min, result, 0);
+                break;
+            }
+        }
+        ctx.recordPhase(Phase.OUTPUT, now); // Le somme prefisse sono implicite nel riempimento
+
+        // Stessi valori che produrrebbe il percorso tracciato
+        ctx.comparisons = 2L * (n - 1);
+        ctx.memoryAccesses = (n - 1) + n + (long) n;
+        return result;
+    }
+
+    /**
+     * Counting Sort stabile a somme prefisse: ogni chiave viene scritta nella prima
+     * posizione libera del proprio bucket, scorrendo l'input in avanti
+     */
+    private void countingSortStable(CountingSortContext ctx, int[] keys, int[] sortedKeys, int[] permutation) {
+        int n = keys.length;
+        long start = System.nanoTime();
+        long minMax = CountingSortKernels.minMax(keys, 0, n);
+        int min = CountingSortKernels.unpackMin(minMax);
+        ctx.minValue = min;
+        ctx.maxValue = CountingSortKernels.unpackMax(minMax);
+        int[] starts = new int[CountingSortKernels.countArrayLength(ctx.minValue, ctx.maxValue)];
+        ctx.counterWidth = CounterWidth.INT; // Le posizioni iniziali arrivano fino a n
+        long now = ctx.recordPhase(Phase.FIND_RANGE, start);
+
+        CountingSortKernels.histogram(keys, 0, n, min, starts);
+        now = ctx.recordPhase(Phase.COUNT, now);
+
+        CountingSortKernels.exclusivePrefixSum(starts);
+        now = ctx.recordPhase(Phase.PREFIX, now);
+
+        CountingSortKernels.scatterStable(keys, min, starts, sortedKeys, permutation);
+        ctx.recordPhase(Phase.OUTPUT, now);
+
+        ctx.comparisons = 2L * (n - 1);
+        ctx.memoryAccesses = (n - 1) + n + (long) starts.length + 2L * n;
+    }
+
+    /**
+     * Modalità adattiva: il selettore campiona l'input e il motore esegue l'algoritmo
+     * scelto. Il tempo della scelta, che comprende minimo e massimo, va nella fase FIND_RANGE.
+     * Per Arrays.sort confronti e accessi non vengono misurati e restano a zero.
+     */
+    private int[] sortAdaptive(CountingSortContext ctx, int[] arr) {
+        int n = arr.length;
+        long start = System.nanoTime();
+        ctx.executedMode = EngineMode.ADAPTIVE;
+        AdaptiveSortSelector selector = new AdaptiveSortSelector();
+        ctx.sortAlgorithm = selector.select(arr);
+        ctx.selectionReason = selector.getReason();
+        ctx.minValue = selector.getMinValue();
+        ctx.maxValue = selector.getMaxValue();
+        int[] result;
+        switch (ctx.sortAlgorithm) {
+            case COUNTING:
+                result = countingSortUntraced(ctx, arr, selector.getMinValue(), selector.getMaxValue(), start);
+                break;
+            case RADIX: {
+                long selectionNanos = ctx.recordPhase(Phase.FIND_RANGE, start) - start;
+                RadixSort radixSort = new RadixSort(radixDigitBits);
+                result = radixSort.sort(arr);
+                finishRadix(ctx, radixSort, n);
+                ctx.phaseNanos[Phase.FIND_RANGE.ordinal()] += selectionNanos;
+                break;
+            }
+            case COMPARISON: {
+                long now = ctx.recordPhase(Phase.FIND_RANGE, start);
+                result = arr.clone();
+                Arrays.sort(result);
+                ctx.recordPhase(Phase.OUTPUT, now);
+                break;
+            }
+            default: {
+                long now = ctx.recordPhase(Phase.FIND_RANGE, start);
+                result = arr.clone();
+                ctx.recordPhase(Phase.OUTPUT, now);
+                ctx.comparisons = Math.max(0, n - 1L);
+                ctx.memoryAccesses = 2L * n;
+                break;
+            }
+        }
+        ctx.executedMode = EngineMode.ADAPTIVE; // finishRadix registra RADIX
+        return result;
+    }
+
+    /**
+     * Raccoglie statistiche e contatori di un'esecuzione Radix Sort
+     */
+    private void finishRadix(CountingSortContext ctx, RadixSort radixSort, int n) {
+        ctx.executedMode = EngineMode.RADIX;
+        ctx.sortAlgorithm = SortAlgorithm.RADIX;
+        ctx.radixStats = radixSort.getStats();
+        ctx.phaseNanos = radixSort.getPhaseNanos();
+        ctx.minValue = radixSort.getMinValue();
+        ctx.maxValue = radixSort.getMaxValue();
+        ctx.counterWidth = CounterWidth.INT;
+        if (n == 0) return;
+        ctx.comparisons = 2L * (n - 1);
+        // Lettura per gli istogrammi, somme prefisse, lettura e scrittura per ogni passata
+        ctx.memoryAccesses = n + (long) ctx.radixStats.getTotalPasses() * (1 << ctx.radixStats.getDigitBits())
+                + 2L * n * ctx.radixStats.getExecutedPasses();
+    }
+
+    /**
+     * Counting Sort parallelo senza tracking, vedi {@link ParallelCountingSort}
+     */
+    private int[] countingSortParallel(CountingSortContext ctx, int[] arr, ForkJoinPool pool) {
+        int n = arr.length;
+        ParallelCountingSort parallelSort = new ParallelCountingSort(pool, arr, pool.getParallelism());
+        int[] result = parallelSort.sort();
+
+        ctx.executedMode = EngineMode.PARALLEL;
+        ctx.parallelism = parallelSort.getParallelism();
+        ctx.phaseNanos = parallelSort.getPhaseNanos();
+        ctx.minValue = parallelSort.getMinValue();
+        ctx.maxValue = parallelSort.getMaxValue();
+        ctx.counterWidth = CounterWidth.INT;
+        ctx.comparisons = 2L * (n - 1);
+        // Oltre ai tre passaggi sull'input, la fusione legge gli istogrammi privati
+        ctx.memoryAccesses = (n - 1) + n + (long) n
+                + (long) (parallelSort.getHistogramCount() - 1) * (ctx.maxValue - ctx.minValue + 1);
+        return result;
     }
 
     /**
      * Implementazione Counting Sort con tracking delle operazioni
      */
-    private int[] countingSort(int[] arr) {
+    private int[] countingSort(CountingSortContext ctx, int[] arr) {
         if (arr.length == 0) return new int[0];
         
-        addStep("Inizio Counting Sort", -1, -1, arr, true);
+        long start = System.nanoTime(); // I tempi per fase comprendono la registrazione dei passi
+        ctx.addStep(CountingSortStep.Opcode.START, 0, 0, -1, -1, arr, true);
         
-        // Trova il valore massimo per determinare la dimensione dell'array di conteggio
+        // Trova minimo e massimo per determinare la dimensione dell'array di conteggio
+        int min = arr[0];
         int max = arr[0];
         for (int i = 1; i < arr.length; i++) {
-            memoryAccesses++;
-            comparisons++;
-            addStep("Controllo elemento " + arr[i] + " per trovare il massimo", i, -1, arr, false);
+            ctx.memoryAccesses++;
+            ctx.comparisons += 2;
+            ctx.progress(Phase.FIND_RANGE, i, arr.length);
+            if (ctx.records(false)) ctx.addStep(CountingSortStep.Opcode.RANGE_CHECK, arr[i], 0, i, -1, arr, false);
+            if (arr[i] < min) {
+                min = arr[i];
+                if (ctx.records(false)) ctx.addStep(CountingSortStep.Opcode.NEW_MIN, min, 0, i, -1, arr, false);
+            }
             if (arr[i] > max) {
                 max = arr[i];
-                addStep("Nuovo massimo trovato: " + max, i, -1, arr, false);
+                if (ctx.records(false)) ctx.addStep(CountingSortStep.Opcode.NEW_MAX, max, 0, i, -1, arr, false);
             }
         }
+        ctx.minValue = min;
+        ctx.maxValue = max;
+        long now = ctx.recordPhase(Phase.FIND_RANGE, start);
         
-        // Crea l'array di conteggio (dimensione = max + 1 poiché partiamo da 0)
-        int[] count = new int[max + 1];
-        addStep("Creato array di conteggio di dimensione " + (max + 1), -1, -1, arr, true);
+        // Crea l'array di conteggio (dimensione = max - min + 1, indice = valore - min)
+        int range = CountingSortKernels.countArrayLength(min, max);
+        ctx.counterWidth = CounterWidth.INT; // La traccia domina la memoria: contatori int
+        int[] count = new int[range];
+        ctx.addStep(CountingSortStep.Opcode.COUNT_ARRAY_CREATED, range, min, -1, -1, arr, true);
         
         // Conta le occorrenze di ogni elemento
         for (int i = 0; i < arr.length; i++) {
-            memoryAccesses++;
-            count[arr[i]]++;
-            addStep("Conteggio elemento " + arr[i], i, -1, arr, false);
+            ctx.memoryAccesses++;
+            count[arr[i] - min]++;
+            ctx.progress(Phase.COUNT, i, arr.length);
+            if (ctx.records(false)) ctx.addStep(CountingSortStep.Opcode.COUNT, arr[i], 0, i, -1, arr, false);
         }
         
-        addStep("Fase di conteggio completata", -1, -1, arr, true);
+        ctx.addStep(CountingSortStep.Opcode.COUNT_DONE, 0, 0, -1, -1, arr, true);
+        now = ctx.recordPhase(Phase.COUNT, now);
         
         // Costruisce l'array risultato
         int[] result = new int[arr.length];
         int currentPosition = 0;
         
         // Ricostruisce l'array ordinato
-        for (int i = 0; i <= max; i++) {
+        for (int i = 0; i < range; i++) {
+            int value = min + i;
             while (count[i] > 0) {
-                result[currentPosition] = i;
-                addStep("Posizionamento elemento " + i + " nella posizione " + currentPosition, -1, currentPosition, result, true);
+                ctx.progress(Phase.OUTPUT, currentPosition, arr.length);
+                ctx.writeTracked(result, currentPosition, value);
+                ctx.addStep(CountingSortStep.Opcode.PLACE, value, currentPosition, -1, currentPosition, result, true);
                 currentPosition++;
                 count[i]--;
-                memoryAccesses++;
+                ctx.memoryAccesses++;
             }
         }
         
-        addStep("Counting Sort Completato", -1, -1, result, true);
+        ctx.addStep(CountingSortStep.Opcode.DONE, 0, 0, -1, -1, result, true);
+        ctx.recordPhase(Phase.OUTPUT, now);
         return result;
     }
 
-    // Metodi di supporto essenziali
+    /**
+     * Imposta il registro aggiornato alla fine di ogni esecuzione (null per disattivarlo).
+     * Con il registro il motore misura anche i byte allocati dal thread chiamante.
+     */
+    public void setMetrics(CountingSortMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public CountingSortMetrics getMetrics() {
+        return metrics;
+    }
 
     /**
-     * Funzione di utilità per lo scambio di elementi
+     * Imposta il pool usato dalla modalità parallela (predefinito: common pool)
      */
-    private void swap(int[] arr, int i, int j) {
-        int temp = arr[i];
-        arr[i] = arr[j];
-        arr[j] = temp;
-        memoryAccesses += 4; // 2 letture + 2 scritture
+    public void setForkJoinPool(ForkJoinPool pool) {
+        this.forkJoinPool = Objects.requireNonNull(pool);
     }
 
     /**
-     * Aggiunge un passo all'esecuzione dell'algoritmo per il tracking
-     * @param isStateChange Indica se questo step rappresenta un cambio di stato principale (es. inizio passata, fine algoritmo)
-     * o un'operazione intermedia (es. confronto). Utile per la visualizzazione.
+     * Imposta la dimensione minima dell'input sotto la quale la modalità
+     * parallela ricade sul percorso sequenziale
      */
-    private void addStep(String description, int index1, int index2, int[] currentArrayState, boolean isStateChange) {
-        CountingSortStep step = new CountingSortStep(
-            "Counting Sort",
-            description,
-            index1, 
-            index2, 
-            System.nanoTime(),
-            comparisons,
-            swaps,
-            memoryAccesses,
-            Arrays.copyOf(currentArrayState, currentArrayState.length), 
-            isStateChange
-        );
-        executionSteps.add(step);
-        if (stepCallback != null) {
-            stepCallback.accept(step);
+    public void setParallelismThreshold(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Soglia di parallelismo negativa: " + threshold);
         }
+        this.parallelismThreshold = threshold;
+    }
+
+    public int getParallelismThreshold() {
+        return parallelismThreshold;
+    }
+
+    /**
+     * Imposta la larghezza in bit delle cifre della modalità Radix (tipicamente 8, 11 o 16).
+     * Cifre più larghe riducono le passate ma ingrandiscono gli istogrammi.
+     */
+    public void setRadixDigitBits(int digitBits) {
+        RadixSort.checkDigitBits(digitBits);
+        this.radixDigitBits = digitBits;
+    }
+
+    public int getRadixDigitBits() {
+        return radixDigitBits;
+    }
+
+    /**
+     * Attiva il conteggio su istogrammi interlacciati (predefinito) per gli intervalli
+     * piccoli, vedi {@link CountingSortKernels#histogramLanes}; con false il motore usa
+     * sempre il ciclo di conteggio scalare, utile per confrontare i due percorsi
+     */
+    public void setLaneHistograms(boolean enabled) {
+        this.laneHistograms = enabled;
+    }
+
+    public boolean isLaneHistograms() {
+        return laneHistograms;
     }
 
     /**
-     * Reset dei contatori per nuova esecuzione
+     * Con true gli ordinamenti tra buffer ({@link #executeAlgorithm(IntBuffer, IntBuffer)})
+     * contano in un buffer diretto invece che in un array sullo heap (predefinito: false)
      */
-    private void resetCounters() {
-        comparisons = 0;
-        swaps = 0;
-        memoryAccesses = 0;
+    public void setOffHeapCounts(boolean enabled) {
+        this.offHeapCounts = enabled;
+    }
+
+    public boolean isOffHeapCounts() {
+        return offHeapCounts;
+    }
+
+    /**
+     * Imposta la dimensione in byte dei buffer della modalità esterna (multiplo di 4)
+     */
+    public void setExternalBufferBytes(int bufferBytes) {
+        ExternalCountingSort.checkBufferBytes(bufferBytes);
+        this.externalBufferBytes = bufferBytes;
+    }
+
+    public int getExternalBufferBytes() {
+        return externalBufferBytes;
     }
 
     /**
@@ -158,4 +963,15 @@ public class CountingSortEngine {
         this.stepCallback = callback;
     }
 
+    /**
+     * Imposta il destinatario dell'avanzamento per fase (null per disattivarlo)
+     */
+    public void setProgressListener(ProgressListener listener) {
+        this.progressListener = listener;
+    }
+
+    public ProgressListener getProgressListener() {
+        return progressListener;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,250 @@
+package com.algorithmvisualizer;
+
+import java.util.Arrays;
+
+/**
+ * Istogramma di lunga durata per dati che arrivano a lotti.
+ * È lo stesso array di conteggio con offset del motore, ma con contatori a 64 bit
+ * e un intervallo che cresce quando arrivano valori nuovi: i conteggi esistenti
+ * vengono spostati (l'array almeno raddoppia, quindi le copie sono ammortizzate)
+ * e mai ricalcolati, così aggiungere o rimuovere un lotto costa O(lotto).
+ * Le query di rango e percentile usano le somme cumulative, ricostruite in O(k)
+ * solo alla prima query dopo una modifica; le query successive costano O(1) o O(log k).
+ * L'istanza non è thread-safe.
+ */
+public class CountingSortHistogram {
+
+    private long[] counts = new long[0];
+    private int base; // Valore corrispondente a counts[0]
+    private long total;
+
+    // Somme cumulative per le query: cumulative[i] = elementi con valore <= base + i
+    private long[] cumulative;
+    private boolean cumulativeValid;
+    private int minIndex; // Primo e ultimo bucket non vuoti, validi insieme alle somme cumulative
+    private int maxIndex;
+
+    public CountingSortHistogram() {
+    }
+
+    /**
+     * Crea un istogramma con i valori dell'array
+     */
+    public static CountingSortHistogram of(int[] data) {
+        CountingSortHistogram histogram = new CountingSortHistogram();
+        histogram.add(data);
+        return histogram;
+    }
+
+    public void add(int[] batch) {
+        add(batch, 0, batch.length);
+    }
+
+    /**
+     * Aggiunge gli elementi nell'intervallo [from, to) del lotto
+     * @throws IllegalArgumentException se l'intervallo dei valori diventa troppo ampio per un array di conteggio
+     */
+    public void add(int[] batch, int from, int to) {
+        if (from >= to) return;
+        long minMax = CountingSortKernels.minMax(batch, from, to);
+        add(batch, from, to, CountingSortKernels.unpackMin(minMax), CountingSortKernels.unpackMax(minMax));
+    }
+
+    /**
+     * Come {@link #add(int[], int, int)}, con minimo e massimo del lotto già calcolati
+     */
+    void add(int[] batch, int from, int to, int low, int high) {
+        ensureRange(low, high);
+        CountingSortKernels.histogram(batch, from, to, base, counts);
+        total += to - from;
+        cumulativeValid = false;
+    }
+
+    /**
+     * Rimuove gli elementi del lotto
+     * @throws IllegalArgumentException se un valore non è presente (abbastanza volte);
+     * in quel caso l'istogramma resta invariato
+     */
+    public void remove(int[] batch) {
+        for (int i = 0; i < batch.length; i++) {
+            int value = batch[i];
+            long index = (long) value - base;
+            if (index < 0 || index >= counts.length || counts[(int) index] == 0) {
+                for (int j = 0; j < i; j++) counts[batch[j] - base]++; // Annulla le rimozioni già fatte
+                throw new IllegalArgumentException("Valore " + value + " non presente nell'istogramma");
+            }
+            counts[(int) index]--;
+        }
+        total -= batch.length;
+        cumulativeValid = false;
+    }
+
+    /**
+     * Somma i conteggi di un altro istogramma, in O(k dell'altro)
+     */
+    public void merge(CountingSortHistogram other) {
+        if (other.total == 0) return;
+        other.ensureCumulative();
+        int low = other.base + other.minIndex;
+        int high = other.base + other.maxIndex;
+        ensureRange(low, high);
+        int offset = low - base;
+        for (int i = other.minIndex; i <= other.maxIndex; i++) {
+            counts[offset + i - other.minIndex] += other.counts[i];
+        }
+        total += other.total;
+        cumulativeValid = false;
+    }
+
+    /** Numero totale di elementi */
+    public long size() { return total; }
+
+    public boolean isEmpty() { return total == 0; }
+
+    /** Occorrenze del valore indicato */
+    public long count(int value) {
+        long index = (long) value - base;
+        return index < 0 || index >= counts.length ? 0 : counts[(int) index];
+    }
+
+    public int getMinValue() {
+        requireNotEmpty();
+        ensureCumulative();
+        return base + minIndex;
+    }
+
+    public int getMaxValue() {
+        requireNotEmpty();
+        ensureCumulative();
+        return base + maxIndex;
+    }
+
+    /**
+     * Rango del valore: numero di elementi strettamente minori, in O(1) con somme valide
+     */
+    public long rank(int value) {
+        if (total == 0) return 0;
+        ensureCumulative();
+        long index = (long) value - base;
+        if (index <= 0) return 0;
+        if (index > counts.length) return total;
+        return cumulative[(int) index - 1];
+    }
+
+    /**
+     * Valore in posizione rank (da 0) nella sequenza ordinata, con una ricerca binaria sulle somme
+     */
+    public int valueAtRank(long rank) {
+        if (rank < 0 || rank >= total) {
+            throw new IndexOutOfBoundsException("Rango " + rank + " fuori dall'istogramma di " + total + " elementi");
+        }
+        ensureCumulative();
+        // Primo bucket con più di rank elementi minori o uguali
+        int low = minIndex;
+        int high = maxIndex;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] > rank) high = mid; else low = mid + 1;
+        }
+        return base + low;
+    }
+
+    /**
+     * Percentile con il metodo del rango più vicino
+     * @param percent Percentuale in [0, 100]
+     */
+    public int percentile(double percent) {
+        if (!(percent >= 0 && percent <= 100)) {
+            throw new IllegalArgumentException("Percentuale non valida: " + percent);
+        }
+        requireNotEmpty();
+        long rank = (long) Math.ceil(percent / 100.0 * total) - 1;
+        return valueAtRank(Math.max(0, rank));
+    }
+
+    /**
+     * Array ordinato con tutti gli elementi, ricostruito dai conteggi in O(n + k)
+     * @throws IllegalStateException se gli elementi non stanno in un array Java
+     */
+    public int[] snapshotSorted() {
+        if (total > CountingSortKernels.MAX_COUNT_ARRAY_LENGTH) {
+            throw new IllegalStateException("Troppi elementi per un array Java: " + total);
+        }
+        int[] result = new int[(int) total];
+        if (total == 0) return result;
+        ensureCumulative();
+        int position = 0;
+        for (int i = minIndex; i <= maxIndex; i++) {
+            int occurrences = (int) counts[i];
+            if (occurrences > 0) {
+                Arrays.fill(result, position, position + occurrences, base + i);
+                position += occurrences;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Memoria occupata dai contatori (compreso lo spazio per la crescita), in byte
+     */
+    public long getCountArrayBytes() {
+        return (long) counts.length * Long.BYTES;
+    }
+
+    // Accesso diretto ai contatori per la modalità esterna
+
+    long[] counts() { return counts; }
+    int base() { return base; }
+
+    /**
+     * Allarga l'istogramma fino a coprire [low, high], almeno raddoppiandolo per
+     * ammortizzare le copie; i conteggi esistenti vengono spostati, non ricalcolati
+     */
+    void ensureRange(int low, int high) {
+        long coveredLow = base;
+        long coveredHigh = (long) base + counts.length - 1;
+        if (counts.length > 0 && low >= coveredLow && high <= coveredHigh) return;
+
+        long newLow = counts.length == 0 ? low : Math.min(coveredLow, low);
+        long newHigh = counts.length == 0 ? high : Math.max(coveredHigh, high);
+        int needed = CountingSortKernels.countArrayLength(newLow, newHigh);
+        long length = Math.min(CountingSortKernels.MAX_COUNT_ARRAY_LENGTH,
+                Math.max(needed, 2L * counts.length));
+        // Lo spazio in più va dal lato verso cui l'intervallo è cresciuto
+        long start = low < coveredLow && counts.length > 0 ? newHigh - length + 1 : newLow;
+        start = Math.max(Integer.MIN_VALUE, Math.min(start, (long) Integer.MAX_VALUE - length + 1));
+
+        long[] grown = new long[(int) length];
+        if (counts.length > 0) {
+            System.arraycopy(counts, 0, grown, (int) (coveredLow - start), counts.length);
+        }
+        counts = grown;
+        base = (int) start;
+        cumulative = null;
+        cumulativeValid = false;
+    }
+
+    private void ensureCumulative() {
+        if (cumulativeValid) return;
+        if (cumulative == null || cumulative.length != counts.length) {
+            cumulative = new long[counts.length];
+        }
+        long running = 0;
+        minIndex = -1;
+        maxIndex = -1;
+        for (int i = 0; i < counts.length; i++) {
+            long occurrences = counts[i];
+            if (occurrences != 0) {
+                if (minIndex < 0) minIndex = i;
+                maxIndex = i;
+            }
+            running += occurrences;
+            cumulative[i] = running;
+        }
+        cumulativeValid = true;
+    }
+
+    private void requireNotEmpty() {
+        if (total == 0) throw new IllegalStateException("Istogramma vuoto");
+    }
+}
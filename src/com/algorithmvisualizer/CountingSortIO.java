@@ -0,0 +1,200 @@
+package com.algorithmvisualizer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Lettura e scrittura di array di interi su file, con NIO bufferizzato.
+ * Il formato binario è una sequenza di int a 32 bit nell'ordine dei byte indicato;
+ * i file binari grandi vengono mappati in memoria a segmenti invece che letti a blocchi.
+ * Il formato testo contiene interi decimali separati da spazi, virgole o a capo.
+ */
+public final class CountingSortIO {
+
+    /** Formato dei file di interi */
+    public enum Format {
+        BINARY,
+        TEXT;
+
+        /**
+         * Deduce il formato dall'estensione: .txt e .csv sono testo, il resto binario
+         */
+        public static Format forPath(Path path) {
+            String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+            return name.endsWith(".txt") || name.endsWith(".csv") ? TEXT : BINARY;
+        }
+    }
+
+    /** Dimensione dei buffer di lettura e scrittura */
+    static final int BUFFER_SIZE = 1 << 20;
+    /** Oltre questa dimensione i file binari vengono mappati invece che letti a blocchi */
+    static final long MMAP_THRESHOLD = 64L << 20;
+    /** Dimensione massima di un segmento mappato (multiplo di 4 byte) */
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    private CountingSortIO() {
+    }
+
+    public static int[] readInts(Path path, Format format, ByteOrder order) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return format == Format.TEXT ? readText(channel) : readBinary(channel, order);
+        }
+    }
+
+    public static void writeInts(Path path, int[] data, Format format, ByteOrder order) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (format == Format.TEXT) {
+                writeText(channel, data);
+            } else {
+                writeBinary(channel, data, order);
+            }
+        }
+    }
+
+    private static int[] readBinary(FileChannel channel, ByteOrder order) throws IOException {
+        long size = channel.size();
+        if (size % 4 != 0) {
+            throw new IOException("Dimensione del file binario non multipla di 4 byte: " + size);
+        }
+        if (size / 4 > MAX_ARRAY_LENGTH) {
+            throw new IOException("Troppi elementi per un array Java: " + size / 4);
+        }
+        int[] data = new int[(int) (size / 4)];
+        if (size >= MMAP_THRESHOLD) {
+            // Mappatura a segmenti: nessuna copia intermedia in buffer del processo
+            for (long offset = 0; offset < size; offset += MAX_SEGMENT_BYTES) {
+                long length = Math.min(MAX_SEGMENT_BYTES, size - offset);
+                channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(order)
+                       .asIntBuffer().get(data, (int) (offset / 4), (int) (length / 4));
+            }
+            return data;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(order);
+        int filled = 0;
+        while (filled < data.length) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("File troncato durante la lettura");
+            }
+            buffer.flip();
+            IntBuffer ints = buffer.asIntBuffer();
+            int count = ints.remaining();
+            ints.get(data, filled, count);
+            filled += count;
+            buffer.position(count * 4);
+            buffer.compact(); // Conserva gli eventuali byte di un int spezzato tra due letture
+        }
+        return data;
+    }
+
+    private static int[] readText(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        int[] data = new int[1024];
+        int count = 0;
+        long value = 0;
+        boolean negative = false;
+        boolean signSeen = false; // Un solo segno per numero, seguito da almeno una cifra
+        boolean inNumber = false;
+        long position = 0;
+        while (channel.read(buffer) >= 0) {
+            buffer.flip();
+            byte[] bytes = buffer.array();
+            int limit = buffer.limit();
+            for (int i = 0; i < limit; i++, position++) {
+                byte b = bytes[i];
+                if (b >= '0' && b <= '9') {
+                    value = value * 10 + (b - '0');
+                    if (value > (negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE)) {
+                        throw new IOException("Valore fuori dall'intervallo int alla posizione " + position);
+                    }
+                    inNumber = true;
+                } else if ((b == '-' || b == '+') && !inNumber) {
+                    if (signSeen) {
+                        throw new IOException("Segno ripetuto alla posizione " + position);
+                    }
+                    signSeen = true;
+                    negative = b == '-';
+                } else {
+                    if (inNumber) {
+                        if (count == data.length) data = grow(data);
+                        data[count++] = (int) (negative ? -value : value);
+                    } else if (signSeen) {
+                        throw new IOException("Segno senza cifre alla posizione " + position);
+                    }
+                    if (b != ' ' && b != ',' && b != ';' && b != '\n' && b != '\r' && b != '\t') {
+                        throw new IOException("Carattere non valido '" + (char) b + "' alla posizione " + position);
+                    }
+                    value = 0;
+                    negative = false;
+                    signSeen = false;
+                    inNumber = false;
+                }
+            }
+            buffer.clear();
+        }
+        if (inNumber) {
+            if (count == data.length) data = grow(data);
+            data[count++] = (int) (negative ? -value : value);
+        } else if (signSeen) {
+            throw new IOException("Segno senza cifre alla posizione " + position);
+        }
+        return Arrays.copyOf(data, count);
+    }
+
+    private static void writeBinary(FileChannel channel, int[] data, ByteOrder order) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(order);
+        int chunk = BUFFER_SIZE / 4;
+        for (int from = 0; from < data.length; from += chunk) {
+            int length = Math.min(chunk, data.length - from);
+            buffer.clear();
+            buffer.asIntBuffer().put(data, from, length);
+            buffer.limit(length * 4);
+            writeFully(channel, buffer);
+        }
+    }
+
+    private static void writeText(FileChannel channel, int[] data) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] digits = new byte[11];
+        for (int value : data) {
+            if (buffer.remaining() < 12) {
+                buffer.flip();
+                writeFully(channel, buffer);
+                buffer.clear();
+            }
+            // Cifre generate al contrario in un buffer temporaneo, senza creare stringhe
+            long remaining = Math.abs((long) value);
+            int length = 0;
+            do {
+                digits[length++] = (byte) ('0' + remaining % 10);
+                remaining /= 10;
+            } while (remaining > 0);
+            if (value < 0) buffer.put((byte) '-');
+            while (length > 0) buffer.put(digits[--length]);
+            buffer.put((byte) '\n');
+        }
+        buffer.flip();
+        writeFully(channel, buffer);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static int[] grow(int[] data) throws IOException {
+        if (data.length >= MAX_ARRAY_LENGTH) {
+            throw new IOException("Troppi elementi per un array Java");
+        }
+        return Arrays.copyOf(data, (int) Math.min(MAX_ARRAY_LENGTH, data.length * 2L));
+    }
+}
@@ -0,0 +1,387 @@
+package com.algorithmvisualizer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Cicli caldi del Counting Sort senza tracking, condivisi dalle varie modalità del motore.
+ * I contatori a 8 e 16 bit sono interpretati senza segno, quindi un array di byte
+ * può contare fino a 255 occorrenze e uno di char fino a 65535.
+ */
+final class CountingSortKernels {
+
+    /** Dimensione massima di un array Java sulla maggior parte delle JVM */
+    static final int MAX_COUNT_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    /** Numero di istogrammi interlacciati di {@link #histogramLanes} */
+    static final int HISTOGRAM_LANES = 4;
+    /** Intervallo massimo per le corsie: 4 * 2048 contatori int occupano 32 KB, la cache L1 */
+    static final int LANE_HISTOGRAM_MAX_RANGE = 2048;
+
+    /** Bucket fissi di byte[] (valore - Byte.MIN_VALUE) */
+    static final int BYTE_BUCKETS = 1 << 8;
+    /** Bucket fissi di short[] (valore - Short.MIN_VALUE) e char[] (valore senza segno) */
+    static final int CHAR_BUCKETS = 1 << 16;
+
+    private CountingSortKernels() {
+    }
+
+    /**
+     * Trova minimo e massimo nell'intervallo [from, to) (non vuoto)
+     * @return Minimo nei 32 bit alti e massimo nei 32 bit bassi
+     */
+    static long minMax(int[] arr, int from, int to) {
+        int min = arr[from];
+        int max = min;
+        for (int i = from + 1; i < to; i++) {
+            int value = arr[i];
+            if (value < min) min = value;
+            if (value > max) max = value;
+        }
+        return pack(min, max);
+    }
+
+    /**
+     * Come {@link #minMax(int[], int, int)}, su un buffer con indici assoluti
+     */
+    static long minMax(IntBuffer buffer, int from, int to) {
+        int min = buffer.get(from);
+        int max = min;
+        for (int i = from + 1; i < to; i++) {
+            int value = buffer.get(i);
+            if (value < min) min = value;
+            if (value > max) max = value;
+        }
+        return pack(min, max);
+    }
+
+    static long pack(int min, int max) {
+        return ((long) min << 32) | (max & 0xFFFFFFFFL);
+    }
+
+    static int unpackMin(long minMax) {
+        return (int) (minMax >> 32);
+    }
+
+    static int unpackMax(long minMax) {
+        return (int) minMax;
+    }
+
+    /**
+     * Dimensione dell'array di conteggio per l'intervallo [min, max]
+     * @throws IllegalArgumentException se l'intervallo non è rappresentabile con un array
+     */
+    static int countArrayLength(long min, long max) {
+        long range = max - min + 1;
+        if (range <= 0 || range > MAX_COUNT_ARRAY_LENGTH) {
+            throw new IllegalArgumentException("Intervallo di valori [" + min + ", " + max
+                    + "] troppo ampio per un array di conteggio");
+        }
+        return (int) range;
+    }
+
+    // Conteggio delle occorrenze, una variante per ogni larghezza dei contatori
+
+    static void histogram(int[] arr, int from, int to, int min, byte[] count) {
+        for (int i = from; i < to; i++) {
+            count[arr[i] - min]++;
+        }
+    }
+
+    static void histogram(int[] arr, int from, int to, int min, char[] count) {
+        for (int i = from; i < to; i++) {
+            count[arr[i] - min]++;
+        }
+    }
+
+    static void histogram(int[] arr, int from, int to, int min, int[] count) {
+        for (int i = from; i < to; i++) {
+            count[arr[i] - min]++;
+        }
+    }
+
+    static void histogram(int[] arr, int from, int to, int min, long[] count) {
+        for (int i = from; i < to; i++) {
+            count[arr[i] - min]++;
+        }
+    }
+
+    static void histogram(IntBuffer buffer, int from, int to, int min, int[] count) {
+        for (int i = from; i < to; i++) {
+            count[buffer.get(i) - min]++;
+        }
+    }
+
+    static void histogram(IntBuffer buffer, int from, int to, int min, IntBuffer count) {
+        for (int i = from; i < to; i++) {
+            int bucket = buffer.get(i) - min;
+            count.put(bucket, count.get(bucket) + 1);
+        }
+    }
+
+    /**
+     * Contatori int azzerati fuori dallo heap, nell'ordine dei byte nativo
+     * @throws IllegalArgumentException se i contatori superano i 2 GB di un buffer diretto
+     */
+    static IntBuffer directCounts(int range) {
+        if ((long) range * Integer.BYTES > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Intervallo di " + range
+                    + " valori troppo ampio per un array di conteggio diretto");
+        }
+        return ByteBuffer.allocateDirect(range * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    /**
+     * Indica se per n elementi su range bucket conviene {@link #histogramLanes}: solo con
+     * intervalli piccoli, dove le chiavi si ripetono spesso e le corsie restano in cache
+     */
+    static boolean useLanes(int n, int range) {
+        return range <= LANE_HISTOGRAM_MAX_RANGE && n >= range * HISTOGRAM_LANES * 4;
+    }
+
+    /**
+     * Conteggio su {@link #HISTOGRAM_LANES} istogrammi interlacciati: lanes[(v - min) * 4 + j]
+     * conta gli elementi in posizione i con i % 4 == j. Con chiavi ripetute gli incrementi
+     * consecutivi cadono su contatori diversi, quindi ogni incremento non deve attendere
+     * la scrittura del precedente sullo stesso indirizzo (conflitto store-to-load).
+     * @param lanes Almeno range * 4 contatori azzerati
+     */
+    static void histogramLanes(int[] arr, int from, int to, int min, int[] lanes) {
+        int i = from;
+        for (int end = to - 3; i < end; i += 4) {
+            lanes[((arr[i] - min) << 2)]++;
+            lanes[((arr[i + 1] - min) << 2) + 1]++;
+            lanes[((arr[i + 2] - min) << 2) + 2]++;
+            lanes[((arr[i + 3] - min) << 2) + 3]++;
+        }
+        for (; i < to; i++) {
+            lanes[(arr[i] - min) << 2]++;
+        }
+    }
+
+    /**
+     * Trasforma i conteggi nelle posizioni iniziali di ogni bucket (somme prefisse esclusive)
+     */
+    static void exclusivePrefixSum(int[] count) {
+        int position = 0;
+        for (int i = 0; i < count.length; i++) {
+            int occurrences = count[i];
+            count[i] = position;
+            position += occurrences;
+        }
+    }
+
+    /**
+     * Distribuzione stabile: scrive chiavi e indici originali nelle posizioni dei bucket.
+     * Al termine starts contiene la fine di ogni bucket.
+     */
+    static void scatterStable(int[] keys, int min, int[] starts, int[] sortedKeys, int[] permutation) {
+        for (int i = 0; i < keys.length; i++) {
+            int key = keys[i];
+            int position = starts[key - min]++;
+            sortedKeys[position] = key;
+            permutation[position] = i;
+        }
+    }
+
+    // Ricostruzione dell'output: ogni bucket diventa una sequenza contigua di valori uguali,
+    // a partire da position e leggendo solo i primi range contatori (gli array possono venire dal pool)
+
+    static void fill(byte[] count, int range, int min, int[] result, int position) {
+        for (int i = 0; i < range; i++) {
+            int occurrences = count[i] & 0xFF;
+            if (occurrences > 0) {
+                Arrays.fill(result, position, position + occurrences, min + i);
+                position += occurrences;
+            }
+        }
+    }
+
+    static void fill(char[] count, int range, int min, int[] result, int position) {
+        for (int i = 0; i < range; i++) {
+            int occurrences = count[i];
+            if (occurrences > 0) {
+                Arrays.fill(result, position, position + occurrences, min + i);
+                position += occurrences;
+            }
+        }
+    }
+
+    /**
+     * Riempimento dagli istogrammi di {@link #histogramLanes}, sommando le corsie di ogni bucket
+     */
+    static void fillLanes(int[] lanes, int range, int min, int[] result, int position) {
+        for (int i = 0, lane = 0; i < range; i++, lane += HISTOGRAM_LANES) {
+            int occurrences = lanes[lane] + lanes[lane + 1] + lanes[lane + 2] + lanes[lane + 3];
+            if (occurrences > 0) {
+                Arrays.fill(result, position, position + occurrences, min + i);
+                position += occurrences;
+            }
+        }
+    }
+
+    static void fill(int[] count, int range, int min, int[] result, int position) {
+        for (int i = 0; i < range; i++) {
+            int occurrences = count[i];
+            if (occurrences > 0) {
+                Arrays.fill(result, position, position + occurrences, min + i);
+                position += occurrences;
+            }
+        }
+    }
+
+    // Riempimento di un buffer di output con indici assoluti: non esiste un Arrays.fill per i buffer
+
+    static void fill(int[] count, int range, int min, IntBuffer result, int position) {
+        for (int i = 0; i < range; i++) {
+            int value = min + i;
+            for (int end = position + count[i]; position < end; position++) {
+                result.put(position, value);
+            }
+        }
+    }
+
+    static void fill(IntBuffer count, int range, int min, IntBuffer result, int position) {
+        for (int i = 0; i < range; i++) {
+            int value = min + i;
+            for (int end = position + count.get(i); position < end; position++) {
+                result.put(position, value);
+            }
+        }
+    }
+
+    // Domini fissi dei tipi piccoli: il bucket è il valore traslato dell'offset del tipo,
+    // quindi non serve cercare minimo e massimo prima di contare
+
+    static void histogram(byte[] arr, int[] count) {
+        for (int i = 0; i < arr.length; i++) {
+            count[arr[i] - Byte.MIN_VALUE]++;
+        }
+    }
+
+    /**
+     * Come {@link #histogramLanes(int[], int, int, int, int[])} sui 256 bucket di un byte[]
+     * @param lanes Almeno BYTE_BUCKETS * 4 contatori azzerati
+     */
+    static void histogramLanes(byte[] arr, int[] lanes) {
+        int i = 0;
+        for (int end = arr.length - 3; i < end; i += 4) {
+            lanes[((arr[i] - Byte.MIN_VALUE) << 2)]++;
+            lanes[((arr[i + 1] - Byte.MIN_VALUE) << 2) + 1]++;
+            lanes[((arr[i + 2] - Byte.MIN_VALUE) << 2) + 2]++;
+            lanes[((arr[i + 3] - Byte.MIN_VALUE) << 2) + 3]++;
+        }
+        for (; i < arr.length; i++) {
+            lanes[(arr[i] - Byte.MIN_VALUE) << 2]++;
+        }
+    }
+
+    /**
+     * Somma le corsie di ogni bucket nei primi range contatori dello stesso array:
+     * il bucket i si scrive dopo aver letto le corsie 4i..4i+3, quindi nessuna va persa
+     */
+    static void collapseLanes(int[] lanes, int range) {
+        for (int i = 0, lane = 0; i < range; i++, lane += HISTOGRAM_LANES) {
+            lanes[i] = lanes[lane] + lanes[lane + 1] + lanes[lane + 2] + lanes[lane + 3];
+        }
+    }
+
+    static void histogram(short[] arr, int[] count) {
+        for (int i = 0; i < arr.length; i++) {
+            count[arr[i] - Short.MIN_VALUE]++;
+        }
+    }
+
+    static void histogram(char[] arr, int[] count) {
+        for (int i = 0; i < arr.length; i++) {
+            count[arr[i]]++;
+        }
+    }
+
+    /**
+     * Primo bucket non vuoto tra i primi range (-1 se sono tutti vuoti)
+     */
+    static int firstBucket(int[] count, int range) {
+        for (int i = 0; i < range; i++) {
+            if (count[i] != 0) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Ultimo bucket non vuoto tra i primi range (-1 se sono tutti vuoti)
+     */
+    static int lastBucket(int[] count, int range) {
+        for (int i = range - 1; i >= 0; i--) {
+            if (count[i] != 0) return i;
+        }
+        return -1;
+    }
+
+    // Riempimento dei tipi piccoli sui bucket [first, last], dall'inizio dell'array
+
+    static void fill(int[] count, int first, int last, byte[] result) {
+        for (int i = first, position = 0; i <= last; i++) {
+            int occurrences = count[i];
+            if (occurrences > 0) {
+                Arrays.fill(result, position, position + occurrences, (byte) (i + Byte.MIN_VALUE));
+                position += occurrences;
+            }
+        }
+    }
+
+    static void fill(int[] count, int first, int last, short[] result) {
+        for (int i = first, position = 0; i <= last; i++) {
+            int occurrences = count[i];
+            if (occurrences > 0) {
+                Arrays.fill(result, position, position + occurrences, (short) (i + Short.MIN_VALUE));
+                position += occurrences;
+            }
+        }
+    }
+
+    static void fill(int[] count, int first, int last, char[] result) {
+        for (int i = first, position = 0; i <= last; i++) {
+            int occurrences = count[i];
+            if (occurrences > 0) {
+                Arrays.fill(result, position, position + occurrences, (char) i);
+                position += occurrences;
+            }
+        }
+    }
+
+    // Chiavi a 64 bit con intervallo stretto: conteggio sullo scostamento dal minimo
+
+    /**
+     * Minimo e massimo di un array di long non vuoto
+     * @return { minimo, massimo }
+     */
+    static long[] minMax(long[] arr) {
+        long min = arr[0];
+        long max = min;
+        for (int i = 1; i < arr.length; i++) {
+            long value = arr[i];
+            if (value < min) min = value;
+            if (value > max) max = value;
+        }
+        return new long[] { min, max };
+    }
+
+    static void histogram(long[] arr, long min, int[] count) {
+        for (int i = 0; i < arr.length; i++) {
+            count[(int) (arr[i] - min)]++;
+        }
+    }
+
+    static void fill(int[] count, int range, long min, long[] result) {
+        for (int i = 0, position = 0; i < range; i++) {
+            int occurrences = count[i];
+            if (occurrences > 0) {
+                Arrays.fill(result, position, position + occurrences, min + i);
+                position += occurrences;
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.algorithmvisualizer;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Registro leggero delle metriche del motore: per ogni fase un istogramma dei
+ * nanosecondi, più gli istogrammi dei byte allocati e degli elementi al secondo
+ * per esecuzione. Il motore lo aggiorna una sola volta alla fine di ogni esecuzione,
+ * con i tempi per fase già misurati, quindi senza costi nei cicli caldi; senza registro
+ * ({@link CountingSortEngine#setMetrics}) non viene misurata nemmeno l'allocazione.
+ * Gli istogrammi hanno bucket a potenze di 2 aggiornati con operazioni atomiche:
+ * lo stesso registro può essere condiviso da più thread e letto mentre viene aggiornato.
+ */
+public final class CountingSortMetrics {
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN = threadBean(false);
+
+    private final Histogram[] phaseNanos = new Histogram[CountingSortEngine.Phase.values().length];
+    private final Histogram executionNanos = new Histogram();
+    private final Histogram allocatedBytes = new Histogram();
+    private final Histogram elementsPerSecond = new Histogram();
+
+    public CountingSortMetrics() {
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = new Histogram();
+        }
+    }
+
+    /**
+     * Registra un'esecuzione completata
+     */
+    public void record(CountingSortResult result) {
+        for (CountingSortEngine.Phase phase : CountingSortEngine.Phase.values()) {
+            long nanos = result.getPhaseNanos(phase);
+            if (nanos > 0) phaseNanos[phase.ordinal()].record(nanos);
+        }
+        long nanos = result.getExecutionTimeNanos();
+        executionNanos.record(nanos);
+        if (result.getAllocatedBytes() >= 0) allocatedBytes.record(result.getAllocatedBytes());
+        if (nanos > 0 && result.getElementCount() > 0) {
+            elementsPerSecond.record((long) (result.getElementCount() * 1e9 / nanos));
+        }
+    }
+
+    public Histogram getPhaseNanos(CountingSortEngine.Phase phase) { return phaseNanos[phase.ordinal()]; }
+    public Histogram getExecutionNanos() { return executionNanos; }
+    public Histogram getAllocatedBytes() { return allocatedBytes; }
+    public Histogram getElementsPerSecond() { return elementsPerSecond; }
+
+    public void reset() {
+        for (Histogram histogram : phaseNanos) histogram.reset();
+        executionNanos.reset();
+        allocatedBytes.reset();
+        elementsPerSecond.reset();
+    }
+
+    /**
+     * Riepilogo testuale, una riga per istogramma
+     */
+    public String format() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.ROOT, "Esecuzioni: %,d%n", executionNanos.getCount()));
+        for (CountingSortEngine.Phase phase : CountingSortEngine.Phase.values()) {
+            appendLine(text, phase.toString(), getPhaseNanos(phase), "ns");
+        }
+        appendLine(text, "TOTALE", executionNanos, "ns");
+        appendLine(text, "ALLOCATI", allocatedBytes, "B");
+        appendLine(text, "ELEMENTI/S", elementsPerSecond, "");
+        return text.toString();
+    }
+
+    private static void appendLine(StringBuilder text, String name, Histogram histogram, String unit) {
+        if (histogram.getCount() == 0) {
+            text.append(String.format(Locale.ROOT, "%-11s -%n", name));
+            return;
+        }
+        text.append(String.format(Locale.ROOT, "%-11s n=%,d media=%,.0f%s p50<=%,d%s p99<=%,d%s max=%,d%s%n",
+                name, histogram.getCount(), histogram.getMean(), unit,
+                histogram.getPercentile(50), unit, histogram.getPercentile(99), unit, histogram.getMax(), unit));
+    }
+
+    /**
+     * Byte allocati finora dal thread corrente, -1 se la JVM non li misura.
+     * I worker della modalità parallela allocano su altri thread e non vengono contati.
+     */
+    static long currentThreadAllocatedBytes() {
+        return THREAD_BEAN == null ? -1 : THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Bean dei thread con i contatori di allocazione, null se la JVM non li misura
+     * @param enable Se true attiva i contatori, altrimenti li usa solo se sono già attivi
+     */
+    static com.sun.management.ThreadMXBean threadBean(boolean enable) {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspotBean = (com.sun.management.ThreadMXBean) bean;
+            if (hotspotBean.isThreadAllocatedMemorySupported()) {
+                if (enable) hotspotBean.setThreadAllocatedMemoryEnabled(true);
+                if (hotspotBean.isThreadAllocatedMemoryEnabled()) return hotspotBean;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Istogramma di valori non negativi a bucket logaritmici: il bucket b contiene
+     * i valori in [2^(b-1), 2^b), il bucket 0 lo zero. I percentili sono quindi
+     * limiti superiori con errore relativo al massimo di un fattore 2.
+     */
+    public static final class Histogram {
+
+        private static final int BUCKETS = 64;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        public void record(long value) {
+            if (value < 0) throw new IllegalArgumentException("Valore negativo: " + value);
+            buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(value));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            long current;
+            while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+                // Riprova: un altro thread ha aggiornato il massimo
+            }
+        }
+
+        public long getCount() { return count.get(); }
+        public long getSum() { return sum.get(); }
+        public long getMax() { return max.get(); }
+
+        public double getMean() {
+            long n = count.get();
+            return n == 0 ? 0 : (double) sum.get() / n;
+        }
+
+        /**
+         * Limite superiore del percentile indicato (0 se l'istogramma è vuoto)
+         * @param percent Percentuale in [0, 100]
+         */
+        public long getPercentile(double percent) {
+            if (!(percent >= 0 && percent <= 100)) {
+                throw new IllegalArgumentException("Percentuale non valida: " + percent);
+            }
+            long n = count.get();
+            if (n == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(percent / 100.0 * n));
+            long seen = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                seen += buckets.get(b);
+                if (seen >= rank) {
+                    long upper = b == 0 ? 0 : (1L << b) - 1; // Per b = 63 diventa Long.MAX_VALUE
+                    return Math.min(upper, max.get());
+                }
+            }
+            return max.get();
+        }
+
+        public void reset() {
+            for (int b = 0; b < BUCKETS; b++) buckets.set(b, 0);
+            count.set(0);
+            sum.set(0);
+            max.set(0);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.algorithmvisualizer;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.XYChart;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.util.StringConverter;
+
+/**
+ * Cronologia delle prestazioni: conserva gli ultimi risultati in un buffer circolare e
+ * li disegna su un LineChart con una serie per modalità del motore (le esecuzioni con
+ * traccia hanno una serie propria, perché registrare i passi domina il tempo).
+ * Entrambi gli assi sono logaritmici, così le curve di scala su n o k restano leggibili
+ * da 10 a 10^6 elementi.
+ * Un nuovo risultato aggiunge un solo punto alla sua serie e, a buffer pieno, rimuove
+ * quello del risultato più vecchio: la cronologia viene ridisegnata solo quando si
+ * cambia asse o metrica. Va usato dal thread FX.
+ */
+public class CountingSortPerformanceChart {
+
+    /** Risultati conservati per impostazione predefinita */
+    public static final int DEFAULT_CAPACITY = 256;
+    /** Suffissi delle etichette compatte, uno per ogni potenza di 1000 (il primo è vuoto) */
+    private static final String COMPACT_SUFFIXES = " kMGT";
+
+    /**
+     * Grandezza sull'asse orizzontale
+     */
+    public enum XAxisValue {
+        ELEMENTS("n (elementi)"),
+        KEY_RANGE("k (intervallo dei valori)");
+
+        private final String label;
+
+        XAxisValue(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() { return label; }
+    }
+
+    /**
+     * Grandezza sull'asse verticale
+     */
+    public enum Metric {
+        NANOS("Tempo (ns)"),
+        ELEMENTS_PER_SECOND("Elementi/s"),
+        ALLOCATED_BYTES("Byte allocati");
+
+        private final String label;
+
+        Metric(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() { return label; }
+    }
+
+    /**
+     * Risultato ridotto ai valori disegnabili, con il punto che lo rappresenta
+     * (null se la metrica corrente non è positiva e non ha un logaritmo)
+     */
+    private static final class Entry {
+        final String series;
+        final long elements;
+        final long keyRange;
+        final long nanos;
+        final double elementsPerSecond;
+        final long allocatedBytes; // -1 se non misurati
+        XYChart.Data<Number, Number> point;
+
+        Entry(CountingSortResult result, boolean traced) {
+            this.series = result.getEngineMode() + (traced ? " + traccia" : "");
+            this.elements = result.getElementCount();
+            this.keyRange = result.getKeyRange();
+            this.nanos = result.getExecutionTimeNanos();
+            this.elementsPerSecond = nanos > 0 ? elements * 1e9 / nanos : 0;
+            this.allocatedBytes = result.getAllocatedBytes();
+        }
+    }
+
+    private final Entry[] entries;
+    private int head; // Posizione del risultato più vecchio
+    private int size;
+
+    private final NumberAxis xAxis = new NumberAxis();
+    private final NumberAxis yAxis = new NumberAxis();
+    private final LineChart<Number, Number> chart = new LineChart<>(xAxis, yAxis);
+    private final Map<String, XYChart.Series<Number, Number>> series = new LinkedHashMap<>();
+    private final ComboBox<XAxisValue> xSelector = new ComboBox<>();
+    private final ComboBox<Metric> metricSelector = new ComboBox<>();
+    private final VBox node = new VBox(5);
+
+    public CountingSortPerformanceChart() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public CountingSortPerformanceChart(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacità non valida: " + capacity);
+        entries = new Entry[capacity];
+
+        StringConverter<Number> powers = new StringConverter<Number>() {
+            @Override
+            public String toString(Number exponent) {
+                return compact(Math.pow(10, exponent.doubleValue()));
+            }
+
+            @Override
+            public Number fromString(String text) {
+                return Math.log10(parseCompact(text));
+            }
+        };
+        for (NumberAxis axis : new NumberAxis[] {xAxis, yAxis}) {
+            axis.setForceZeroInRange(false);
+            axis.setTickLabelFormatter(powers);
+            axis.setTickLabelFill(Color.LIGHTGRAY);
+        }
+        chart.setAnimated(false); // Le animazioni rincorrerebbero gli aggiornamenti degli assi
+        chart.setPrefHeight(220);
+        chart.setLegendVisible(true);
+
+        xSelector.getItems().addAll(XAxisValue.values());
+        xSelector.setValue(XAxisValue.ELEMENTS);
+        metricSelector.getItems().addAll(Metric.values());
+        metricSelector.setValue(Metric.NANOS);
+        xSelector.valueProperty().addListener((obs, oldValue, newValue) -> replot());
+        metricSelector.valueProperty().addListener((obs, oldValue, newValue) -> replot());
+        updateAxisLabels();
+
+        Label title = new Label("Prestazioni");
+        title.setTextFill(Color.WHITE);
+        HBox selectors = new HBox(10, title, xSelector, metricSelector);
+        selectors.setAlignment(Pos.CENTER_LEFT);
+        node.setPadding(new Insets(5, 0, 0, 0));
+        node.getChildren().addAll(selectors, chart);
+    }
+
+    public Node getNode() { return node; }
+    public int size() { return size; }
+    public int getCapacity() { return entries.length; }
+
+    /**
+     * Aggiunge un risultato alla cronologia e il suo punto al grafico, sostituendo
+     * il più vecchio se il buffer è pieno
+     * @param traced true se l'esecuzione registrava i passi
+     */
+    public void add(CountingSortResult result, boolean traced) {
+        Entry entry = new Entry(result, traced);
+        int slot = (head + size) % entries.length;
+        if (size == entries.length) {
+            removePoint(entries[head]);
+            head = (head + 1) % entries.length;
+        } else {
+            size++;
+        }
+        entries[slot] = entry;
+        addPoint(entry);
+    }
+
+    /**
+     * Svuota la cronologia e il grafico
+     */
+    public void clear() {
+        for (XYChart.Series<Number, Number> s : series.values()) s.getData().clear();
+        Arrays.fill(entries, null);
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Ridisegna tutta la cronologia dopo un cambio di asse o metrica
+     */
+    private void replot() {
+        updateAxisLabels();
+        for (XYChart.Series<Number, Number> s : series.values()) s.getData().clear();
+        for (int i = 0; i < size; i++) {
+            addPoint(entries[(head + i) % entries.length]);
+        }
+    }
+
+    private void addPoint(Entry entry) {
+        double x = xAxisValue(entry);
+        double y = metricValue(entry);
+        if (x <= 0 || y <= 0) {
+            entry.point = null; // Nessun logaritmo: il risultato resta nella cronologia ma non nel grafico
+            return;
+        }
+        entry.point = new XYChart.Data<>(Math.log10(x), Math.log10(y));
+        seriesFor(entry.series).getData().add(entry.point);
+    }
+
+    private void removePoint(Entry entry) {
+        if (entry.point != null) {
+            series.get(entry.series).getData().remove(entry.point);
+            entry.point = null;
+        }
+    }
+
+    private XYChart.Series<Number, Number> seriesFor(String name) {
+        XYChart.Series<Number, Number> s = series.get(name);
+        if (s == null) {
+            s = new XYChart.Series<>();
+            s.setName(name);
+            series.put(name, s);
+            chart.getData().add(s);
+        }
+        return s;
+    }
+
+    private double xAxisValue(Entry entry) {
+        return xSelector.getValue() == XAxisValue.KEY_RANGE ? entry.keyRange : entry.elements;
+    }
+
+    private double metricValue(Entry entry) {
+        switch (metricSelector.getValue()) {
+            case ELEMENTS_PER_SECOND: return entry.elementsPerSecond;
+            case ALLOCATED_BYTES: return entry.allocatedBytes;
+            default: return entry.nanos;
+        }
+    }
+
+    private void updateAxisLabels() {
+        xAxis.setLabel(xSelector.getValue() + ", scala log");
+        yAxis.setLabel(metricSelector.getValue() + ", scala log");
+    }
+
+    /**
+     * Valore compatto per le etichette degli assi (1k, 10M, ...)
+     */
+    private static String compact(double value) {
+        int magnitude = 0;
+        while (value >= 1000 && magnitude < COMPACT_SUFFIXES.length() - 1) {
+            value /= 1000;
+            magnitude++;
+        }
+        return String.format(Locale.ROOT, value >= 10 || value == Math.rint(value) ? "%.0f%s" : "%.1f%s",
+                value, magnitude == 0 ? "" : COMPACT_SUFFIXES.charAt(magnitude));
+    }
+
+    /**
+     * Inverso di {@link #compact}: "1.5k" diventa 1500
+     * @throws NumberFormatException se il testo non è un valore compatto
+     */
+    private static double parseCompact(String text) {
+        String trimmed = text.trim();
+        int magnitude = trimmed.isEmpty() ? -1 : COMPACT_SUFFIXES.indexOf(trimmed.charAt(trimmed.length() - 1));
+        if (magnitude <= 0) return Double.parseDouble(trimmed);
+        return Double.parseDouble(trimmed.substring(0, trimmed.length() - 1)) * Math.pow(1000, magnitude);
+    }
+}
@@ -0,0 +1,213 @@
+package com.algorithmvisualizer;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Evento JFR con la durata di una fase di un'esecuzione del motore.
+ * L'evento viene aperto con {@link #begin()} all'inizio della fase e chiuso con
+ * {@link #commit} alla sua fine, sul thread che la esegue: inizio e durata sono quelli
+ * reali, così in JMC le fasi si collocano sulla timeline del thread accanto a GC e
+ * safepoint. Gli eventi vengono registrati solo se una registrazione JFR li ha abilitati,
+ * ad esempio con java -XX:StartFlightRecording:filename=motore.jfr ...
+ * e poi: jfr print --events com.algorithmvisualizer.Phase motore.jfr
+ *
+ * Il progetto compila per Java 8, dove jdk.jfr non fa parte della piattaforma (c'è solo
+ * nelle JVM 8u262+ e dalla 11): il tipo di evento viene quindi definito a runtime con
+ * jdk.jfr.EventFactory, risolto per riflessione una sola volta al primo utilizzo.
+ * Senza JFR l'emissione non fa nulla.
+ */
+final class CountingSortPhaseEvent {
+
+    static final String NAME = "com.algorithmvisualizer.Phase";
+
+    // Indici dei campi, nell'ordine in cui Emitter.resolve li definisce
+    private static final int PHASE = 0;
+    private static final int MODE = 1;
+    private static final int ALGORITHM = 2;
+    private static final int ELEMENTS = 3;
+    private static final int KEY_RANGE = 4;
+    private static final int PHASE_NANOS = 5;
+    private static final int ALLOCATED_BYTES = 6;
+
+    private CountingSortPhaseEvent() {
+    }
+
+    /**
+     * Apre l'evento di una fase che inizia adesso
+     * @return L'evento da passare a {@link #commit}, null se gli eventi sono disabilitati:
+     * con JFR assente o senza registrazioni costa un controllo, senza allocazioni
+     */
+    static Span begin() {
+        Emitter emitter = EmitterHolder.EMITTER;
+        if (emitter == null || !emitter.isEnabled()) return null;
+        long allocatedAtBegin = CountingSortMetrics.currentThreadAllocatedBytes(); // Prima di avviare l'evento
+        Object event = emitter.begin();
+        return event == null ? null : new Span(emitter, event, allocatedAtBegin);
+    }
+
+    /**
+     * Chiude l'evento di una fase appena terminata; non fa nulla se l'evento è null
+     * @param keyRange Intervallo dei valori noto alla fine della fase
+     * @param phaseNanos Durata misurata dal motore, la stessa riportata nel risultato
+     */
+    static void commit(Span span, CountingSortEngine.Phase phase, CountingSortEngine.EngineMode mode,
+                       CountingSortEngine.SortAlgorithm algorithm, long elements, long keyRange, long phaseNanos) {
+        if (span == null) return;
+        long allocatedNow = CountingSortMetrics.currentThreadAllocatedBytes();
+        long allocated = span.allocatedAtBegin >= 0 && allocatedNow >= 0 ? allocatedNow - span.allocatedAtBegin : -1;
+        span.emitter.commit(span.event, phase.name(), mode.name(), algorithm.name(), elements, keyRange,
+                phaseNanos, allocated);
+    }
+
+    /**
+     * Evento di una fase in corso, con i byte già allocati dal thread all'apertura
+     */
+    static final class Span {
+        private final Emitter emitter;
+        private final Object event;
+        private final long allocatedAtBegin; // -1 se non misurabili
+
+        private Span(Emitter emitter, Object event, long allocatedAtBegin) {
+            this.emitter = emitter;
+            this.event = event;
+            this.allocatedAtBegin = allocatedAtBegin;
+        }
+    }
+
+    /**
+     * Inizializzato alla prima emissione: null se jdk.jfr non è disponibile
+     */
+    private static final class EmitterHolder {
+        static final Emitter EMITTER = Emitter.resolve();
+    }
+
+    /**
+     * Tipo di evento creato con EventFactory e metodi di jdk.jfr.Event e EventType
+     * come MethodHandle
+     */
+    private static final class Emitter {
+        private final MethodHandle typeEnabled; // EventType.isEnabled() legato al tipo: ()boolean
+        private final Object factory;
+        private final MethodHandle newEvent;    // EventFactory.newEvent()
+        private final MethodHandle begin;       // Event.begin()
+        private final MethodHandle set;         // Event.set(int, Object)
+        private final MethodHandle commit;      // Event.commit()
+
+        private Emitter(Object factory, MethodHandles.Lookup lookup, ClassLoader loader) throws Throwable {
+            Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory", false, loader);
+            Class<?> eventClass = Class.forName("jdk.jfr.Event", false, loader);
+            Class<?> typeClass = Class.forName("jdk.jfr.EventType", false, loader);
+            this.factory = factory;
+            Object eventType = lookup.findVirtual(factoryClass, "getEventType", MethodType.methodType(typeClass))
+                    .invoke(factory);
+            this.typeEnabled = lookup.findVirtual(typeClass, "isEnabled", MethodType.methodType(boolean.class))
+                    .bindTo(eventType);
+            this.newEvent = lookup.findVirtual(factoryClass, "newEvent", MethodType.methodType(eventClass));
+            this.begin = lookup.findVirtual(eventClass, "begin", MethodType.methodType(void.class));
+            this.set = lookup.findVirtual(eventClass, "set", MethodType.methodType(void.class, int.class, Object.class));
+            this.commit = lookup.findVirtual(eventClass, "commit", MethodType.methodType(void.class));
+        }
+
+        static Emitter resolve() {
+            try {
+                ClassLoader loader = ClassLoader.getSystemClassLoader();
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory", false, loader);
+                Class<?> annotationClass = Class.forName("jdk.jfr.AnnotationElement", false, loader);
+                Class<?> valueClass = Class.forName("jdk.jfr.ValueDescriptor", false, loader);
+                Constructor<?> annotation = annotationClass.getConstructor(Class.class, Object.class);
+                Constructor<?> value = valueClass.getConstructor(Class.class, String.class, List.class);
+
+                List<Object> eventAnnotations = Arrays.asList(
+                        annotation.newInstance(jfrAnnotation("Name", loader), NAME),
+                        annotation.newInstance(jfrAnnotation("Label", loader), "Fase del Counting Sort"),
+                        annotation.newInstance(jfrAnnotation("Category", loader),
+                                new String[] {"Algorithm Visualizer", "Motore"}),
+                        annotation.newInstance(jfrAnnotation("Description", loader),
+                                "Durata di una fase di un'esecuzione del motore"),
+                        annotation.newInstance(jfrAnnotation("StackTrace", loader), false));
+
+                Object nanos = annotation.newInstance(jfrAnnotation("Timespan", loader), "NANOSECONDS");
+                Object bytes = annotation.newInstance(jfrAnnotation("DataAmount", loader), "BYTES");
+                Class<? extends Annotation> label = jfrAnnotation("Label", loader);
+                // Stesso ordine delle costanti PHASE..ALLOCATED_BYTES
+                List<Object> fields = new ArrayList<>();
+                fields.add(value.newInstance(String.class, "phase", labelled(annotation, label, "Fase")));
+                fields.add(value.newInstance(String.class, "mode", labelled(annotation, label, "Modalità")));
+                fields.add(value.newInstance(String.class, "algorithm", labelled(annotation, label, "Algoritmo")));
+                fields.add(value.newInstance(long.class, "elements", labelled(annotation, label, "Elementi")));
+                fields.add(value.newInstance(long.class, "keyRange",
+                        labelled(annotation, label, "Intervallo dei valori")));
+                fields.add(value.newInstance(long.class, "phaseNanos",
+                        labelled(annotation, label, "Durata della fase", nanos)));
+                fields.add(value.newInstance(long.class, "allocatedBytes",
+                        labelled(annotation, label, "Byte allocati dal thread durante la fase", bytes)));
+
+                Object factory = factoryClass.getMethod("create", List.class, List.class)
+                        .invoke(null, eventAnnotations, fields);
+                return new Emitter(factory, lookup, loader);
+            } catch (Throwable e) {
+                return null; // JVM senza JFR o JFR disabilitato: nessun evento
+            }
+        }
+
+        boolean isEnabled() {
+            try {
+                return (boolean) typeEnabled.invokeExact();
+            } catch (Throwable e) {
+                return false;
+            }
+        }
+
+        /**
+         * @return Nuovo evento con l'istante di inizio già registrato, null se non è stato creato
+         */
+        Object begin() {
+            try {
+                Object event = newEvent.invoke(factory);
+                begin.invoke(event);
+                return event;
+            } catch (Throwable e) {
+                return null;
+            }
+        }
+
+        void commit(Object event, String phase, String mode, String algorithm, long elements, long keyRange,
+                    long phaseNanos, long allocatedBytes) {
+            try {
+                set.invoke(event, PHASE, (Object) phase);
+                set.invoke(event, MODE, (Object) mode);
+                set.invoke(event, ALGORITHM, (Object) algorithm);
+                set.invoke(event, ELEMENTS, (Object) elements);
+                set.invoke(event, KEY_RANGE, (Object) keyRange);
+                set.invoke(event, PHASE_NANOS, (Object) phaseNanos);
+                set.invoke(event, ALLOCATED_BYTES, (Object) allocatedBytes);
+                commit.invoke(event);
+            } catch (Throwable e) {
+                // Un evento perso non deve far fallire l'ordinamento
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Class<? extends Annotation> jfrAnnotation(String simpleName, ClassLoader loader)
+                throws ClassNotFoundException {
+            return (Class<? extends Annotation>) Class.forName("jdk.jfr." + simpleName, false, loader);
+        }
+
+        private static List<Object> labelled(Constructor<?> annotation, Class<? extends Annotation> label,
+                                             String text, Object... others) throws ReflectiveOperationException {
+            List<Object> annotations = new ArrayList<>();
+            annotations.add(annotation.newInstance(label, text));
+            Collections.addAll(annotations, others);
+            return annotations;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.algorithmvisualizer;
+
+/**
+ * Statistiche delle passate di un'esecuzione in modalità Radix Sort
+ */
+public class CountingSortRadixStats {
+    private final int digitBits;
+    private final int totalPasses;
+    private final int executedPasses;
+
+    public CountingSortRadixStats(int digitBits, int totalPasses, int executedPasses) {
+        this.digitBits = digitBits;
+        this.totalPasses = totalPasses;
+        this.executedPasses = executedPasses;
+    }
+
+    // Getters
+    public int getDigitBits() { return digitBits; }
+    public int getTotalPasses() { return totalPasses; }
+    public int getExecutedPasses() { return executedPasses; }
+    public int getSkippedPasses() { return totalPasses - executedPasses; }
+
+    @Override
+    public String toString() {
+        return String.format("Radix: cifre da %d bit, passate=%d/%d", digitBits, executedPasses, totalPasses);
+    }
+}
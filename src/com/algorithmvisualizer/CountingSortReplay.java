@@ -0,0 +1,242 @@
+package com.algorithmvisualizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Replay navigabile di una sequenza di passi, registrata da una traccia completa
+ * oppure man mano che i passi arrivano da uno stream.
+ * Oltre ai keyframe dei passi salva periodicamente un checkpoint dello stato, così
+ * il salto a un passo qualsiasi riparte dal checkpoint più vicino invece che dal
+ * primo passo: il costo di un seek è al massimo una copia dell'array più un
+ * intervallo di delta. Gli spostamenti brevi, anche all'indietro, applicano o
+ * annullano direttamente i delta (usando il valore precedente di ogni passo).
+ * I passi sono copiati in array primitivi (opcode, operandi, indici e delta) e gli
+ * snapshot dei keyframe diventano checkpoint: il replay non trattiene gli oggetti passo
+ * e il seek scorre interi contigui invece di visitare un oggetto per ogni delta.
+ */
+public class CountingSortReplay {
+
+    /** Numero di checkpoint periodici per ogni n passi registrati */
+    private static final int CHECKPOINTS_PER_ARRAY_LENGTH = 4;
+    private static final int KEYFRAME = -2; // Indice modificato dei passi con snapshot completo
+    private static final int FLAG_STATE_CHANGE = 1 << 8; // Nella colonna opcode, sopra l'ordinale
+
+    private int stepCount;
+    private int[] opcodes = new int[64]; // Ordinale dell'opcode e FLAG_STATE_CHANGE
+    private int[] operands1 = new int[64];
+    private int[] operands2 = new int[64];
+    private int[] primaryIndices = new int[64];
+    private int[] secondaryIndices = new int[64];
+    private int[] changedIndices = new int[64]; // Per passo: indice modificato, NO_CHANGE o KEYFRAME
+    private int[] oldValues = new int[64];
+    private int[] newValues = new int[64];
+    private final int checkpointInterval;
+    private int[] checkpointSteps = new int[8];
+    private final List<int[]> checkpointStates = new ArrayList<>();
+    private int checkpointCount;
+    private int[] recordingState; // Stato dopo l'ultimo passo registrato
+
+    private int position = -1;
+    private int[] state; // Stato dopo il passo corrente
+
+    /**
+     * @param arrayLength Lunghezza dell'array ordinato, usata per scegliere l'intervallo tra checkpoint
+     */
+    public CountingSortReplay(int arrayLength) {
+        this.checkpointInterval = Math.max(CountingSortTrace.MIN_KEYFRAME_INTERVAL,
+                arrayLength / CHECKPOINTS_PER_ARRAY_LENGTH);
+    }
+
+    /**
+     * Crea il replay di un'esecuzione registrata con traccia
+     * @throws IllegalArgumentException se il risultato non conserva i passi
+     */
+    public static CountingSortReplay of(CountingSortResult result) {
+        CountingSortTrace trace = result.getTrace();
+        if (trace == null || !trace.isRetainingSteps()) {
+            throw new IllegalArgumentException("Il risultato non contiene una traccia dei passi");
+        }
+        CountingSortReplay replay = new CountingSortReplay((int) result.getElementCount());
+        for (CountingSortStep step : trace.getSteps()) {
+            replay.append(step);
+        }
+        return replay;
+    }
+
+    /**
+     * Registra il passo successivo copiandone i campi: il passo non viene trattenuto
+     */
+    public void append(CountingSortStep step) {
+        int index = stepCount;
+        if (index == 0 && !step.isKeyframe()) {
+            throw new IllegalArgumentException("Il primo passo deve contenere lo stato completo");
+        }
+        if (index == changedIndices.length) {
+            int capacity = index * 2;
+            opcodes = Arrays.copyOf(opcodes, capacity);
+            operands1 = Arrays.copyOf(operands1, capacity);
+            operands2 = Arrays.copyOf(operands2, capacity);
+            primaryIndices = Arrays.copyOf(primaryIndices, capacity);
+            secondaryIndices = Arrays.copyOf(secondaryIndices, capacity);
+            changedIndices = Arrays.copyOf(changedIndices, capacity);
+            oldValues = Arrays.copyOf(oldValues, capacity);
+            newValues = Arrays.copyOf(newValues, capacity);
+        }
+        opcodes[index] = step.getOpcode().ordinal() | (step.isStateChange() ? FLAG_STATE_CHANGE : 0);
+        operands1[index] = step.getOperand1();
+        operands2[index] = step.getOperand2();
+        primaryIndices[index] = step.getPrimaryIndex();
+        secondaryIndices[index] = step.getSecondaryIndex();
+        changedIndices[index] = step.isKeyframe() ? KEYFRAME : step.getChangedIndex();
+        oldValues[index] = step.getOldValue();
+        newValues[index] = step.getNewValue();
+        stepCount++;
+        recordingState = step.applyTo(recordingState);
+        if (step.isKeyframe() || index - checkpointSteps[checkpointCount - 1] >= checkpointInterval) {
+            addCheckpoint(index, Arrays.copyOf(recordingState, recordingState.length));
+        }
+    }
+
+    public int size() { return stepCount; }
+    public int getPosition() { return position; }
+    public int getCheckpointCount() { return checkpointCount; }
+
+    /**
+     * Ricrea il passo indicato dalle colonne: ogni chiamata restituisce un nuovo oggetto
+     * con opcode, operandi, indici e delta (descrizione compresa); timestamp e contatori
+     * non vengono conservati dal replay e valgono zero, e i keyframe portano lo snapshot
+     * del checkpoint al posto dell'indice modificato
+     */
+    public CountingSortStep getStep(int stepIndex) {
+        if (stepIndex < 0 || stepIndex >= stepCount) {
+            throw new IndexOutOfBoundsException("Passo " + stepIndex + " fuori dal replay di " + stepCount + " passi");
+        }
+        boolean keyframe = changedIndices[stepIndex] == KEYFRAME;
+        return new CountingSortStep(
+            CountingSortStep.Opcode.fromOrdinal(opcodes[stepIndex] & ~FLAG_STATE_CHANGE),
+            operands1[stepIndex],
+            operands2[stepIndex],
+            primaryIndices[stepIndex],
+            secondaryIndices[stepIndex],
+            0,
+            0,
+            0,
+            0,
+            keyframe ? CountingSortStep.NO_CHANGE : changedIndices[stepIndex],
+            oldValues[stepIndex],
+            newValues[stepIndex],
+            keyframe ? checkpointStates.get(checkpointAtOrBefore(stepIndex)) : null,
+            (opcodes[stepIndex] & FLAG_STATE_CHANGE) != 0,
+            null,
+            stepIndex
+        );
+    }
+
+    /**
+     * Stato dopo il passo corrente; l'array viene aggiornato sul posto dai seek successivi
+     * finché la lunghezza non cambia
+     */
+    public int[] getState() { return state; }
+
+    public CountingSortStep getCurrentStep() {
+        return position < 0 ? null : getStep(position);
+    }
+
+    /**
+     * Porta il replay al passo indicato (incluso)
+     * @param changed Riceve gli indici modificati quando lo stato viene aggiornato per delta
+     * @return true se lo stato è stato sostituito o ricaricato per intero, e va quindi ridisegnato tutto
+     */
+    public boolean seek(int target, IntConsumer changed) {
+        if (target < 0 || target >= stepCount) {
+            throw new IndexOutOfBoundsException("Passo " + target + " fuori dal replay di " + stepCount + " passi");
+        }
+        if (target == position) return false;
+        int checkpoint = checkpointAtOrBefore(target);
+        long restoreCost = (long) recordingState.length + (target - checkpointSteps[checkpoint]);
+        if (position >= 0) {
+            if (target > position && target - position <= restoreCost) {
+                return applyForward(target, changed);
+            }
+            if (target < position && position - target <= restoreCost && canUndo(target)) {
+                undoBackward(target, changed);
+                return false;
+            }
+        }
+        restoreCheckpoint(checkpoint);
+        applyForward(target, changed);
+        return true;
+    }
+
+    private boolean applyForward(int target, IntConsumer changed) {
+        boolean replaced = false;
+        int[] current = state;
+        for (int i = position + 1; i <= target; i++) {
+            int index = changedIndices[i];
+            if (index >= 0) {
+                current[index] = newValues[i];
+                changed.accept(index);
+            } else if (index == KEYFRAME) {
+                current = copyInto(checkpointStates.get(checkpointAtOrBefore(i)), current);
+                replaced = true;
+            }
+        }
+        state = current;
+        position = target;
+        return replaced;
+    }
+
+    /**
+     * I delta si possono annullare solo se nessun passo nell'intervallo ha cambiato array
+     */
+    private boolean canUndo(int target) {
+        for (int i = position; i > target; i--) {
+            if (changedIndices[i] == KEYFRAME) return false;
+        }
+        return true;
+    }
+
+    private void undoBackward(int target, IntConsumer changed) {
+        for (int i = position; i > target; i--) {
+            int index = changedIndices[i];
+            if (index >= 0) {
+                state[index] = oldValues[i];
+                changed.accept(index);
+            }
+        }
+        position = target;
+    }
+
+    private void restoreCheckpoint(int checkpoint) {
+        int stepIndex = checkpointSteps[checkpoint];
+        state = copyInto(checkpointStates.get(checkpoint), state);
+        position = stepIndex;
+    }
+
+    /**
+     * Copia lo snapshot nell'array indicato, se ha la stessa lunghezza, altrimenti in uno nuovo
+     */
+    private static int[] copyInto(int[] snapshot, int[] target) {
+        if (target != null && target.length == snapshot.length) {
+            System.arraycopy(snapshot, 0, target, 0, snapshot.length);
+            return target;
+        }
+        return Arrays.copyOf(snapshot, snapshot.length);
+    }
+
+    private int checkpointAtOrBefore(int stepIndex) {
+        int pos = Arrays.binarySearch(checkpointSteps, 0, checkpointCount, stepIndex);
+        return pos < 0 ? -pos - 2 : pos; // Punto di inserimento - 1
+    }
+
+    private void addCheckpoint(int stepIndex, int[] snapshot) {
+        if (checkpointCount == checkpointSteps.length) {
+            checkpointSteps = Arrays.copyOf(checkpointSteps, checkpointCount * 2);
+        }
+        checkpointSteps[checkpointCount++] = stepIndex;
+        checkpointStates.add(snapshot);
+    }
+}
@@ -1,43 +1,187 @@
 package com.algorithmvisualizer;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
- * Classe per i risultati dell'esecuzione di un algoritmo
+ * Classe per i risultati dell'esecuzione di un algoritmo.
+ * L'array ordinato è un array primitivo: int[] per le esecuzioni standard,
+ * long[] per le chiavi a 64 bit, byte[], short[] o char[] per i tipi piccoli, assente per la modalità esterna che scrive su un canale
+ * e per gli ordinamenti tra buffer, che scrivono nel buffer di output.
  */
 public class CountingSortResult {
-    private final int[] finalArrayState;
-    private final long executionTime;
+    private final Object finalArrayState;
+    private final long elementCount;
+    private final long executionTimeNanos;
     private final long comparisons;
     private final long swaps;
     private final long memoryAccesses;
+    private final long allocatedBytes;
     private final String complexity;
+    private final CountingSortEngine.SortAlgorithm sortAlgorithm;
+    private final String selectionReason;
+    private final long minValue;
+    private final long maxValue;
+    private final CountingSortEngine.CounterWidth counterWidth;
+    private final CountingSortEngine.EngineMode engineMode;
+    private final int parallelism;
+    private final long[] phaseNanos;
+    private final int[] permutation;
+    private final CountingSortRadixStats radixStats;
     private final List<CountingSortStep> steps;
+    private final CountingSortTrace trace;
 
-    public CountingSortResult(int[] finalArrayState, long executionTime, long comparisons,
-                         long swaps, long memoryAccesses, String complexity,
-                         List<CountingSortStep> steps) {
+    public CountingSortResult(Object finalArrayState, long elementCount, long executionTimeNanos, long comparisons,
+                         long swaps, long memoryAccesses, long allocatedBytes, String complexity,
+                         CountingSortEngine.SortAlgorithm sortAlgorithm, String selectionReason,
+                         long minValue, long maxValue, CountingSortEngine.CounterWidth counterWidth,
+                         CountingSortEngine.EngineMode engineMode, int parallelism, long[] phaseNanos,
+                         int[] permutation, CountingSortRadixStats radixStats, CountingSortTrace trace) {
         this.finalArrayState = finalArrayState;
-        this.executionTime = executionTime;
+        this.elementCount = elementCount;
+        this.executionTimeNanos = executionTimeNanos;
         this.comparisons = comparisons;
         this.swaps = swaps;
         this.memoryAccesses = memoryAccesses;
+        this.allocatedBytes = allocatedBytes;
         this.complexity = complexity;
-        this.steps = steps;
+        this.sortAlgorithm = sortAlgorithm;
+        this.selectionReason = selectionReason;
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+        this.counterWidth = counterWidth;
+        this.engineMode = engineMode;
+        this.parallelism = parallelism;
+        this.phaseNanos = phaseNanos;
+        this.permutation = permutation;
+        this.radixStats = radixStats;
+        this.steps = trace != null ? trace.getSteps() : Collections.<CountingSortStep>emptyList();
+        this.trace = trace;
     }
 
     // Getters
-    public int[] getFinalArrayState() { return finalArrayState; }
-    public long getExecutionTime() { return executionTime; }
+    public int[] getFinalArrayState() { return finalArrayState instanceof int[] ? (int[]) finalArrayState : null; }
+    public long[] getFinalLongArrayState() { return finalArrayState instanceof long[] ? (long[]) finalArrayState : null; }
+    public byte[] getFinalByteArrayState() { return finalArrayState instanceof byte[] ? (byte[]) finalArrayState : null; }
+    public short[] getFinalShortArrayState() { return finalArrayState instanceof short[] ? (short[]) finalArrayState : null; }
+    public char[] getFinalCharArrayState() { return finalArrayState instanceof char[] ? (char[]) finalArrayState : null; }
+    public long getElementCount() { return elementCount; } // Anche senza array, per la modalità esterna
+    public long getExecutionTime() { return executionTimeNanos / 1_000_000; } // Millisecondi
+    public long getExecutionTimeNanos() { return executionTimeNanos; }
     public long getComparisons() { return comparisons; }
     public long getSwaps() { return swaps; }
     public long getMemoryAccesses() { return memoryAccesses; }
     public String getComplexity() { return complexity; }
+    public CountingSortEngine.SortAlgorithm getSortAlgorithm() { return sortAlgorithm; }
+    public long getMinValue() { return minValue; }
+    public long getMaxValue() { return maxValue; }
+    public CountingSortEngine.CounterWidth getCounterWidth() { return counterWidth; }
+    public CountingSortEngine.EngineMode getEngineMode() { return engineMode; }
+    public int getParallelism() { return parallelism; }
     public List<CountingSortStep> getSteps() { return steps; }
+    public CountingSortTrace getTrace() { return trace; }
+
+    /**
+     * Permutazione stabile applicata dall'ordinamento (null se l'esecuzione non la calcola):
+     * l'elemento in posizione i proviene dalla posizione getPermutation()[i] dell'input
+     */
+    public int[] getPermutation() { return permutation; }
+
+    /**
+     * Statistiche delle passate Radix Sort (null per le altre modalità)
+     */
+    public CountingSortRadixStats getRadixStats() { return radixStats; }
+
+    /**
+     * Motivo della scelta dell'algoritmo in modalità ADAPTIVE (null se l'algoritmo
+     * è determinato dalla modalità richiesta)
+     */
+    public String getSelectionReason() { return selectionReason; }
+
+    /**
+     * Byte allocati dal thread chiamante durante l'esecuzione, -1 se non misurati
+     * (senza registro delle metriche nel motore o su JVM che non li espongono)
+     */
+    public long getAllocatedBytes() { return allocatedBytes; }
+
+    /**
+     * Durata di una fase in nanosecondi (0 se la modalità eseguita non la misura)
+     */
+    public long getPhaseNanos(CountingSortEngine.Phase phase) { return phaseNanos[phase.ordinal()]; }
+
+    /**
+     * Ampiezza dell'intervallo dei valori k = max - min + 1 (0 per un array vuoto)
+     */
+    public long getKeyRange() {
+        return getElementCount() == 0 ? 0 : maxValue - minValue + 1;
+    }
+
+    /**
+     * Memoria occupata dall'array (o dagli array) di conteggio, in byte
+     */
+    public long getCountArrayBytes() {
+        if (sortAlgorithm == CountingSortEngine.SortAlgorithm.COMPARISON
+                || sortAlgorithm == CountingSortEngine.SortAlgorithm.ALREADY_SORTED) {
+            return 0;
+        }
+        if (radixStats != null) {
+            return (long) radixStats.getTotalPasses() * (1 << radixStats.getDigitBits()) * Integer.BYTES;
+        }
+        return getKeyRange() * counterWidth.getBytesPerCounter();
+    }
+
+    /**
+     * Riordina un array di payload parallelo alle chiavi secondo la permutazione stabile
+     * @return Nuovo array con i payload nell'ordine delle chiavi ordinate
+     */
+    public long[] reorder(long[] payloads) {
+        int[] perm = requirePermutation(payloads.length);
+        long[] reordered = new long[perm.length];
+        for (int i = 0; i < perm.length; i++) {
+            reordered[i] = payloads[perm[i]];
+        }
+        return reordered;
+    }
+
+    /**
+     * Riordina un array di payload interi parallelo alle chiavi
+     */
+    public int[] reorder(int[] payloads) {
+        int[] perm = requirePermutation(payloads.length);
+        int[] reordered = new int[perm.length];
+        for (int i = 0; i < perm.length; i++) {
+            reordered[i] = payloads[perm[i]];
+        }
+        return reordered;
+    }
+
+    /**
+     * Riordina un array di record o payload oggetto parallelo alle chiavi
+     * @return Nuovo array dello stesso tipo con gli elementi nell'ordine delle chiavi ordinate
+     */
+    public <T> T[] reorder(T[] payloads) {
+        int[] perm = requirePermutation(payloads.length);
+        T[] reordered = Arrays.copyOf(payloads, perm.length);
+        for (int i = 0; i < perm.length; i++) {
+            reordered[i] = payloads[perm[i]];
+        }
+        return reordered;
+    }
+
+    private int[] requirePermutation(int payloadLength) {
+        if (permutation == null) {
+            throw new IllegalStateException("Il risultato non contiene una permutazione: usare executeStable");
+        }
+        if (payloadLength != permutation.length) {
+            throw new IllegalArgumentException("Attesi " + permutation.length + " payload, ricevuti " + payloadLength);
+        }
+        return permutation;
+    }
 
     @Override
     public String toString() {
         return String.format("Risultato: Tempo=%dms, Confronti=%d, Scambi=%d, Accessi=%d, Complessità=%s",
-                executionTime, comparisons, swaps, memoryAccesses, complexity);
+                getExecutionTime(), comparisons, swaps, memoryAccesses, complexity);
     }
 }
\ No newline at end of file
@@ -1,46 +1,168 @@
 package com.algorithmvisualizer;
 
 import java.util.Arrays;
+import java.util.Locale;
+import java.util.ResourceBundle;
 
 /**
- * Classe per rappresentare un singolo passo dell'algoritmo
+ * Classe per rappresentare un singolo passo dell'algoritmo.
+ * Il passo non contiene una copia dell'array ma solo la cella modificata;
+ * lo stato completo viene ricostruito tramite la {@link CountingSortTrace}.
+ * Anche la descrizione non viene memorizzata: il passo conserva un {@link Opcode}
+ * con al massimo due operandi interi e il testo si compone solo quando viene
+ * richiesto, dal catalogo localizzabile {@link CountingSortStepMessages}.
  */
 public class CountingSortStep {
-    private final String algorithm;
-    private final String description;
+    /** Valore di {@link #getChangedIndex()} per i passi che non modificano l'array */
+    public static final int NO_CHANGE = -1;
+
+    /** Algoritmo che produce i passi */
+    public static final String ALGORITHM = "Counting Sort";
+
+    /**
+     * Tipo di passo; il significato degli operandi dipende dal tipo
+     */
+    public enum Opcode {
+        /** Inizio dell'algoritmo */
+        START,
+        /** Confronto di un elemento (operando 1: valore) con minimo e massimo correnti */
+        RANGE_CHECK,
+        /** Nuovo minimo (operando 1: valore) */
+        NEW_MIN,
+        /** Nuovo massimo (operando 1: valore) */
+        NEW_MAX,
+        /** Allocazione dell'array di conteggio (operandi: dimensione, offset) */
+        COUNT_ARRAY_CREATED,
+        /** Conteggio di un elemento (operando 1: valore) */
+        COUNT,
+        /** Fine della fase di conteggio */
+        COUNT_DONE,
+        /** Scrittura nell'output (operandi: valore, posizione) */
+        PLACE,
+        /** Fine dell'algoritmo */
+        DONE;
+
+        private static final Opcode[] VALUES = values(); // values() alloca a ogni chiamata
+
+        /**
+         * Opcode con l'ordinale indicato, come salvato nei file di traccia
+         */
+        public static Opcode fromOrdinal(int ordinal) {
+            if (ordinal < 0 || ordinal >= VALUES.length) {
+                throw new IllegalArgumentException("Opcode non valido: " + ordinal);
+            }
+            return VALUES[ordinal];
+        }
+
+        /**
+         * Compone la descrizione dal modello del catalogo per la lingua indicata
+         */
+        public String format(Locale locale, int operand1, int operand2) {
+            String pattern = ResourceBundle.getBundle(CountingSortStepMessages.class.getName(), locale).getString(name());
+            return String.format(locale, pattern, operand1, operand2);
+        }
+    }
+
+    private final Opcode opcode;
+    private final int operand1;
+    private final int operand2;
     private final int primaryIndex;
     private final int secondaryIndex;
     private final long timestamp;
     private final long comparisons;
     private final long swaps;
     private final long memoryAccesses;
-    private final int[] arrayState;
+    private final int changedIndex;
+    private final int oldValue;
+    private final int newValue;
+    private final int[] keyframeState; // Snapshot completo, presente solo nei keyframe
     private final boolean isStateChange;
+    private final CountingSortTrace trace;
+    private final int stepIndex;
 
-    public CountingSortStep(String algorithm, String description, int primaryIndex,
+    public CountingSortStep(Opcode opcode, int operand1, int operand2, int primaryIndex,
                        int secondaryIndex, long timestamp, long comparisons,
-                       long swaps, long memoryAccesses, int[] arrayState, boolean isStateChange) {
-        this.algorithm = algorithm;
-        this.description = description;
+                       long swaps, long memoryAccesses, int changedIndex, int oldValue,
+                       int newValue, int[] keyframeState, boolean isStateChange,
+                       CountingSortTrace trace, int stepIndex) {
+        this.opcode = opcode;
+        this.operand1 = operand1;
+        this.operand2 = operand2;
         this.primaryIndex = primaryIndex;
         this.secondaryIndex = secondaryIndex;
         this.timestamp = timestamp;
         this.comparisons = comparisons;
         this.swaps = swaps;
         this.memoryAccesses = memoryAccesses;
-        this.arrayState = arrayState;
+        this.changedIndex = changedIndex;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+        this.keyframeState = keyframeState;
         this.isStateChange = isStateChange;
+        this.trace = trace;
+        this.stepIndex = stepIndex;
+    }
+
+    /**
+     * Applica questo passo allo stato del passo precedente.
+     * @param previousState Stato dopo il passo precedente (ignorato se il passo è un keyframe)
+     * @return Lo stato dopo questo passo: l'array ricevuto aggiornato sul posto,
+     * oppure una copia dello snapshot se il passo è un keyframe
+     */
+    public int[] applyTo(int[] previousState) {
+        if (keyframeState != null) {
+            if (previousState != null && previousState.length == keyframeState.length) {
+                System.arraycopy(keyframeState, 0, previousState, 0, keyframeState.length);
+                return previousState;
+            }
+            return Arrays.copyOf(keyframeState, keyframeState.length);
+        }
+        if (changedIndex != NO_CHANGE) {
+            previousState[changedIndex] = newValue;
+        }
+        return previousState;
     }
 
     // Getters
-    public String getAlgorithm() { return algorithm; }
-    public String getDescription() { return description; }
+    public String getAlgorithm() { return ALGORITHM; }
+    public Opcode getOpcode() { return opcode; }
+    public int getOperand1() { return operand1; }
+    public int getOperand2() { return operand2; }
     public int getPrimaryIndex() { return primaryIndex; }
     public int getSecondaryIndex() { return secondaryIndex; }
     public long getTimestamp() { return timestamp; }
     public long getComparisons() { return comparisons; }
     public long getSwaps() { return swaps; }
     public long getMemoryAccesses() { return memoryAccesses; }
-    public int[] getArrayState() { return arrayState; }
+    public int getChangedIndex() { return changedIndex; }
+    public int getOldValue() { return oldValue; }
+    public int getNewValue() { return newValue; }
+    public boolean isKeyframe() { return keyframeState != null; }
     public boolean isStateChange() { return isStateChange; }
-}
\ No newline at end of file
+    public CountingSortTrace getTrace() { return trace; } // null per i passi in streaming
+    public int getStepIndex() { return stepIndex; }
+
+    /**
+     * Descrizione nella lingua predefinita, composta a ogni chiamata:
+     * va richiesta solo per i passi effettivamente mostrati
+     */
+    public String getDescription() {
+        return getDescription(Locale.getDefault());
+    }
+
+    public String getDescription(Locale locale) {
+        return opcode.format(locale, operand1, operand2);
+    }
+
+    /**
+     * Ricostruisce lo stato completo dell'array dopo questo passo
+     * @return Nuovo array, ricostruito dal keyframe più vicino
+     * @throws IllegalStateException per i passi ricevuti in streaming, che vanno applicati in ordine
+     */
+    public int[] getArrayState() {
+        if (trace == null) {
+            throw new IllegalStateException("Passo in streaming senza traccia: usare applyTo");
+        }
+        return trace.stateAt(stepIndex);
+    }
+}
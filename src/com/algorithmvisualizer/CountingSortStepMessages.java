@@ -0,0 +1,26 @@
+package com.algorithmvisualizer;
+
+import java.util.ListResourceBundle;
+
+/**
+ * Catalogo predefinito (italiano) delle descrizioni dei passi, una per {@link CountingSortStep.Opcode}.
+ * I modelli sono stringhe di formato con gli operandi del passo come argomenti (%1$d e %2$d).
+ * Per un'altra lingua basta una classe CountingSortStepMessages_xx con le stesse chiavi.
+ */
+public class CountingSortStepMessages extends ListResourceBundle {
+
+    @Override
+    protected Object[][] getContents() {
+        return new Object[][] {
+            {"START", "Inizio Counting Sort"},
+            {"RANGE_CHECK", "Controllo elemento %1$d per trovare minimo e massimo"},
+            {"NEW_MIN", "Nuovo minimo trovato: %1$d"},
+            {"NEW_MAX", "Nuovo massimo trovato: %1$d"},
+            {"COUNT_ARRAY_CREATED", "Creato array di conteggio di dimensione %1$d (offset %2$d)"},
+            {"COUNT", "Conteggio elemento %1$d"},
+            {"COUNT_DONE", "Fase di conteggio completata"},
+            {"PLACE", "Posizionamento elemento %1$d nella posizione %2$d"},
+            {"DONE", "Counting Sort Completato"},
+        };
+    }
+}
@@ -0,0 +1,190 @@
+package com.algorithmvisualizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import javafx.animation.AnimationTimer;
+
+/**
+ * Riproduce sulla GUI i passi di un {@link CountingSortReplay} con un AnimationTimer.
+ * A ogni frame avanza di tutti i passi maturati secondo la velocità (in passi al secondo),
+ * entro un budget di tempo che lascia libero il thread FX, e visualizza solo lo stato
+ * finale del blocco: i delta segnano come sporche le sole colonne modificate e
+ * il renderer ridisegna una volta per frame.
+ * Se il replay è alimentato da uno stream, i passi vengono prelevati solo quando
+ * servono, così il motore resta al massimo un buffer avanti rispetto all'animazione.
+ * Oltre alla riproduzione supporta pausa, passo avanti, passo indietro e salto a un passo.
+ */
+public class CountingSortStepPlayer {
+
+    /**
+     * Notifiche del player, sempre sul thread FX
+     */
+    public interface Listener {
+        /** Il passo corrente è cambiato (riproduzione o navigazione) */
+        void onPositionChanged(CountingSortStep step, int[] state, int position, int recordedSteps);
+
+        /** La riproduzione ha raggiunto l'ultimo passo e lo stream è terminato */
+        void onFinished(int[] state);
+    }
+
+    /** Tempo massimo dedicato all'applicazione dei passi in un frame */
+    public static final long DEFAULT_FRAME_BUDGET_NANOS = 8_000_000L;
+
+    private static final int DRAIN_CHUNK = 256; // Passi prelevati dallo stream per ogni lock
+    private static final double MAX_BACKLOG_SECONDS = 0.25; // Debito massimo dopo un frame lento
+
+    private final CountingSortReplay replay;
+    private final CountingSortStepStream stream; // null se il replay è già completo
+    private final CountingSortBarRenderer renderer;
+    private final Listener listener;
+    private final IntConsumer markChanged;
+    private final List<CountingSortStep> batch = new ArrayList<>(DRAIN_CHUNK);
+    private final AnimationTimer timer;
+
+    private double stepsPerSecond;
+    private long frameBudgetNanos = DEFAULT_FRAME_BUDGET_NANOS;
+    private double owedSteps; // Passi maturati e non ancora applicati
+    private long lastFrame = -1;
+    private boolean playing;
+    private boolean rendererAttached; // Il renderer mostra già lo stato del replay
+    private boolean streamFinished;
+    private boolean finishNotified;
+
+    public CountingSortStepPlayer(CountingSortReplay replay, CountingSortStepStream stream,
+                                  CountingSortBarRenderer renderer, double stepsPerSecond, Listener listener) {
+        this.replay = replay;
+        this.stream = stream;
+        this.renderer = renderer;
+        this.listener = listener;
+        this.markChanged = renderer::markChanged;
+        this.streamFinished = stream == null;
+        setStepsPerSecond(stepsPerSecond);
+        this.timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                frame(now);
+            }
+        };
+    }
+
+    public void play() {
+        if (playing) return;
+        if (isAtEnd()) seekTo(0); // Ricomincia da capo dopo la fine
+        playing = true;
+        finishNotified = false;
+        lastFrame = -1;
+        timer.start();
+    }
+
+    /**
+     * Mette in pausa senza annullare lo stream: il motore si ferma quando il buffer è pieno
+     */
+    public void pause() {
+        playing = false;
+        timer.stop();
+    }
+
+    public void stepForward() {
+        pause();
+        if (replay.getPosition() + 1 >= replay.size()) record(replay.getPosition() + 1, Long.MAX_VALUE);
+        seekTo(replay.getPosition() + 1);
+    }
+
+    public void stepBack() {
+        pause();
+        seekTo(replay.getPosition() - 1);
+    }
+
+    /**
+     * Salta al passo indicato (limitato ai passi già registrati)
+     */
+    public void seekTo(int stepIndex) {
+        if (replay.size() == 0) return;
+        int target = Math.max(0, Math.min(stepIndex, replay.size() - 1));
+        if (target == replay.getPosition() && rendererAttached) return;
+        boolean replaced = replay.seek(target, markChanged);
+        if (replaced || !rendererAttached) {
+            renderer.setValues(replay.getState());
+            rendererAttached = true;
+        }
+        listener.onPositionChanged(replay.getCurrentStep(), replay.getState(), target, replay.size());
+    }
+
+    public void setStepsPerSecond(double stepsPerSecond) {
+        if (!(stepsPerSecond > 0)) {
+            throw new IllegalArgumentException("Velocità non valida: " + stepsPerSecond);
+        }
+        this.stepsPerSecond = stepsPerSecond;
+    }
+
+    public void setFrameBudgetNanos(long frameBudgetNanos) {
+        this.frameBudgetNanos = Math.max(1, frameBudgetNanos);
+    }
+
+    public double getStepsPerSecond() { return stepsPerSecond; }
+    public CountingSortReplay getReplay() { return replay; }
+    public boolean isPlaying() { return playing; }
+
+    /**
+     * Indica se lo stream è terminato e il passo corrente è l'ultimo
+     */
+    public boolean isAtEnd() {
+        return streamFinished && replay.size() > 0 && replay.getPosition() == replay.size() - 1;
+    }
+
+    private void frame(long now) {
+        if (lastFrame >= 0) {
+            owedSteps += (now - lastFrame) * stepsPerSecond / 1e9;
+            owedSteps = Math.min(owedSteps, Math.max(1, stepsPerSecond * MAX_BACKLOG_SECONDS));
+        } else {
+            owedSteps = Math.max(owedSteps, 1); // Il primo passo appare subito
+        }
+        lastFrame = now;
+
+        int position = replay.getPosition();
+        int target = (int) Math.min(Integer.MAX_VALUE - 1, position + (long) owedSteps);
+        if (target >= replay.size()) {
+            if (!record(target, System.nanoTime() + frameBudgetNanos)) return;
+            if (target >= replay.size()) owedSteps = Math.min(owedSteps, 1); // Il motore è indietro
+        }
+        int reached = Math.min(target, replay.size() - 1);
+        if (reached > position) {
+            seekTo(reached);
+            owedSteps -= reached - position;
+        }
+        if (isAtEnd() && !finishNotified) {
+            finishNotified = true;
+            pause();
+            listener.onFinished(replay.getState());
+        }
+    }
+
+    /**
+     * Preleva dallo stream i passi necessari a raggiungere l'indice indicato
+     * @return false se il motore è terminato con un errore (la riproduzione si ferma)
+     */
+    private boolean record(int targetIndex, long deadline) {
+        try {
+            while (!streamFinished && replay.size() <= targetIndex && System.nanoTime() < deadline) {
+                batch.clear();
+                int drained = stream.drainTo(batch, (int) Math.min(DRAIN_CHUNK, (long) targetIndex + 1 - replay.size()));
+                for (int i = 0; i < drained; i++) {
+                    replay.append(batch.get(i));
+                }
+                if (drained == 0) {
+                    streamFinished = stream.isDrained();
+                    break;
+                }
+            }
+            if (!streamFinished && replay.size() <= targetIndex) streamFinished = stream.isDrained();
+            return true;
+        } catch (IllegalStateException e) {
+            pause(); // Errore del motore: lo segnala chi ha avviato l'esecuzione
+            return false;
+        } finally {
+            batch.clear();
+        }
+    }
+}
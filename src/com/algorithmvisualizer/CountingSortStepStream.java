@@ -0,0 +1,258 @@
+package com.algorithmvisualizer;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffer circolare limitato che trasporta i passi dal thread di ordinamento al
+ * consumatore (tipicamente la GUI), senza materializzare l'intera traccia.
+ * Quando il buffer è pieno il produttore si blocca oppure, con la politica
+ * COALESCE, scarta i passi intermedi che non modificano l'array: la memoria
+ * resta costante e lo stato ricostruito con {@link CountingSortStep#applyTo(int[])}
+ * rimane esatto.
+ */
+public class CountingSortStepStream {
+
+    /**
+     * Comportamento del produttore quando il buffer è pieno
+     */
+    public enum OverflowPolicy {
+        /** Il produttore attende che il consumatore liberi spazio */
+        BLOCK,
+        /** I passi senza modifiche all'array vengono scartati; gli altri attendono */
+        COALESCE
+    }
+
+    private final CountingSortStep[] buffer;
+    private final OverflowPolicy policy;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private int head;
+    private int count;
+    private boolean closed;
+    private boolean cancelled;
+    private Throwable failure;
+    private long publishedSteps;
+    private long droppedSteps;
+    private long blockedNanos;
+
+    public CountingSortStepStream(int capacity, OverflowPolicy policy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacità non valida: " + capacity);
+        }
+        this.buffer = new CountingSortStep[capacity];
+        this.policy = policy;
+    }
+
+    /**
+     * Pubblica un passo (lato produttore)
+     * @throws CancellationException se il consumatore ha annullato lo stream
+     * o il produttore è stato interrotto mentre attendeva spazio nel buffer
+     */
+    public void publish(CountingSortStep step) {
+        lock.lock();
+        try {
+            if (count == buffer.length && !cancelled && policy == OverflowPolicy.COALESCE
+                    && !step.isKeyframe() && step.getChangedIndex() == CountingSortStep.NO_CHANGE) {
+                droppedSteps++;
+                return;
+            }
+            if (count == buffer.length && !cancelled) {
+                long start = System.nanoTime();
+                try {
+                    while (count == buffer.length && !cancelled) {
+                        notFull.await();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt(); // Il motore si ferma al prossimo controllo
+                    throw new CancellationException("Produttore interrotto in attesa del consumatore");
+                } finally {
+                    blockedNanos += System.nanoTime() - start;
+                }
+            }
+            if (cancelled) {
+                throw new CancellationException("Stream dei passi annullato dal consumatore");
+            }
+            buffer[(head + count) % buffer.length] = step;
+            count++;
+            publishedSteps++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Segnala la fine dei passi (lato produttore)
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Chiude lo stream per un errore del produttore, che verrà rilanciato al consumatore
+     */
+    public void fail(Throwable error) {
+        lock.lock();
+        try {
+            failure = error;
+            closed = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Annulla lo stream (lato consumatore): il produttore bloccato viene risvegliato
+     * e la sua prossima pubblicazione fallisce con CancellationException
+     */
+    public void cancel() {
+        lock.lock();
+        try {
+            cancelled = true;
+            closed = true;
+            count = 0;
+            notFull.signalAll();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Preleva il prossimo passo senza attendere
+     * @return Il passo, oppure null se il buffer è vuoto
+     */
+    public CountingSortStep poll() {
+        lock.lock();
+        try {
+            return count == 0 ? null : dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Preleva il prossimo passo attendendo al massimo il tempo indicato
+     * @return Il passo, oppure null se lo stream è terminato o il tempo è scaduto
+     */
+    public CountingSortStep poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (count == 0) {
+                if (closed || remaining <= 0) {
+                    rethrowFailure();
+                    return null;
+                }
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sposta nella lista fino a maxSteps passi disponibili, senza attendere
+     * @return Numero di passi trasferiti
+     */
+    public int drainTo(List<CountingSortStep> target, int maxSteps) {
+        lock.lock();
+        try {
+            int drained = 0;
+            while (count > 0 && drained < maxSteps) {
+                target.add(dequeue());
+                drained++;
+            }
+            return drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Indica se il produttore ha terminato e tutti i passi sono stati consumati
+     * @throws IllegalStateException se il produttore è terminato con un errore
+     */
+    public boolean isDrained() {
+        lock.lock();
+        try {
+            if (count == 0 && closed) {
+                rethrowFailure();
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private CountingSortStep dequeue() {
+        CountingSortStep step = buffer[head];
+        buffer[head] = null;
+        head = (head + 1) % buffer.length;
+        count--;
+        notFull.signal();
+        return step;
+    }
+
+    private void rethrowFailure() {
+        if (failure != null) {
+            throw new IllegalStateException("Il produttore dei passi è terminato con un errore", failure);
+        }
+    }
+
+    public int getCapacity() { return buffer.length; }
+    public OverflowPolicy getPolicy() { return policy; }
+
+    public boolean isCancelled() {
+        lock.lock();
+        try {
+            return cancelled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getPublishedSteps() {
+        lock.lock();
+        try {
+            return publishedSteps;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDroppedSteps() {
+        lock.lock();
+        try {
+            return droppedSteps;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Tempo totale trascorso dal produttore in attesa di spazio nel buffer
+     */
+    public long getBlockedNanos() {
+        lock.lock();
+        try {
+            return blockedNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
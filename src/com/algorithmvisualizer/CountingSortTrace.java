@@ -0,0 +1,250 @@
+package com.algorithmvisualizer;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Traccia compatta dell'esecuzione: ogni passo memorizza solo la cella modificata
+ * (indice, valore precedente, valore nuovo), mentre uno snapshot completo dell'array
+ * (keyframe) viene salvato periodicamente e ogni volta che cambia l'array visualizzato.
+ * Lo stato a un passo qualsiasi si ricostruisce partendo dal keyframe precedente
+ * e riapplicando al massimo un intervallo di delta.
+ * I passi sono salvati per colonne in array primitivi (opcode e flag, operandi, indici,
+ * delta e contatori): un {@link CountingSortStep} viene creato solo quando viene richiesto.
+ */
+public class CountingSortTrace {
+
+    /** Intervallo minimo (in passi) tra due keyframe periodici */
+    public static final int MIN_KEYFRAME_INTERVAL = 64;
+    /** Passi tra due letture dell'orologio: gli altri passi riportano l'ultima lettura (potenza di 2) */
+    public static final int TIMESTAMP_INTERVAL = 1 << 10;
+
+    // Colonna dei flag: opcode nei bit bassi, poi i due indicatori
+    private static final int OPCODE_MASK = 0xFF;
+    private static final int FLAG_STATE_CHANGE = 1 << 8;
+    private static final int FLAG_KEYFRAME = 1 << 9;
+
+    private final int keyframeInterval;
+    private final boolean retainSteps;
+    private int stepCount;
+    private int[] keyframeSteps;
+    private int[][] keyframeStates; // Solo se i passi sono conservati
+    private int keyframeCount;
+    private int[] trackedArray; // Array "vivo" del motore, usato solo durante la registrazione
+    private long lastTimestamp;
+
+    // Colonne dei passi conservati, di capacità comune
+    private int[] flags;
+    private int[] operands1;
+    private int[] operands2;
+    private int[] primaryIndices;
+    private int[] secondaryIndices;
+    private int[] changedIndices;
+    private int[] oldValues;
+    private int[] newValues;
+    private long[] comparisons;
+    private long[] memoryAccesses;
+    private long[] timestamps = new long[1]; // Una lettura ogni TIMESTAMP_INTERVAL passi
+
+    /**
+     * Crea una traccia per un array della lunghezza indicata.
+     * L'intervallo tra keyframe cresce con la lunghezza dell'array, così la memoria
+     * occupata dagli snapshot resta proporzionale al numero di passi e non a n².
+     */
+    public CountingSortTrace(int arrayLength) {
+        this(Math.max(MIN_KEYFRAME_INTERVAL, arrayLength), true);
+    }
+
+    private CountingSortTrace(int keyframeInterval, boolean retainSteps) {
+        this.keyframeInterval = keyframeInterval;
+        this.retainSteps = retainSteps;
+        this.keyframeSteps = new int[8];
+        if (retainSteps) {
+            keyframeStates = new int[8][];
+            allocateColumns(64);
+        }
+    }
+
+    /**
+     * Crea una traccia che non conserva i passi, per l'esecuzione in streaming:
+     * i keyframe vengono emessi solo quando cambia l'array visualizzato e il
+     * consumatore ricostruisce lo stato applicando i passi in ordine
+     */
+    static CountingSortTrace streaming() {
+        return new CountingSortTrace(Integer.MAX_VALUE, false);
+    }
+
+    /**
+     * Restituisce lo snapshot da associare al prossimo passo, oppure null se il passo
+     * può essere descritto con il solo delta.
+     */
+    int[] keyframeFor(int[] currentArrayState) {
+        boolean arrayChanged = currentArrayState != trackedArray;
+        boolean intervalElapsed = keyframeCount == 0
+                || stepCount - keyframeSteps[keyframeCount - 1] >= keyframeInterval;
+        if (!arrayChanged && !intervalElapsed) return null;
+        trackedArray = currentArrayState;
+        return Arrays.copyOf(currentArrayState, currentArrayState.length);
+    }
+
+    /**
+     * Istante del prossimo passo: l'orologio viene letto solo ogni {@link #TIMESTAMP_INTERVAL}
+     * passi, gli altri ricevono l'ultima lettura
+     */
+    long nextTimestamp() {
+        if ((stepCount & (TIMESTAMP_INTERVAL - 1)) == 0) {
+            lastTimestamp = System.nanoTime();
+            if (retainSteps) {
+                int sample = stepCount / TIMESTAMP_INTERVAL;
+                if (sample == timestamps.length) timestamps = Arrays.copyOf(timestamps, sample * 2);
+                timestamps[sample] = lastTimestamp;
+            }
+        }
+        return lastTimestamp;
+    }
+
+    /**
+     * Accoda il prossimo passo registrato dal motore, senza creare oggetti
+     * (nella traccia in streaming aggiorna solo i keyframe)
+     * @param keyframeState Snapshot restituito da {@link #keyframeFor}, null per un passo delta
+     */
+    void add(CountingSortStep.Opcode opcode, int operand1, int operand2, int primaryIndex, int secondaryIndex,
+             long comparisonCount, long memoryAccessCount, int changedIndex, int oldValue, int newValue,
+             int[] keyframeState, boolean isStateChange) {
+        int index = stepCount;
+        if (keyframeState != null) {
+            if (keyframeCount == keyframeSteps.length) {
+                keyframeSteps = Arrays.copyOf(keyframeSteps, keyframeCount * 2);
+                if (retainSteps) keyframeStates = Arrays.copyOf(keyframeStates, keyframeCount * 2);
+            }
+            if (retainSteps) keyframeStates[keyframeCount] = keyframeState;
+            keyframeSteps[keyframeCount++] = index;
+        }
+        stepCount++;
+        if (!retainSteps) return;
+        if (index == flags.length) allocateColumns(index * 2);
+        flags[index] = opcode.ordinal() | (isStateChange ? FLAG_STATE_CHANGE : 0)
+                | (keyframeState != null ? FLAG_KEYFRAME : 0);
+        operands1[index] = operand1;
+        operands2[index] = operand2;
+        primaryIndices[index] = primaryIndex;
+        secondaryIndices[index] = secondaryIndex;
+        changedIndices[index] = changedIndex;
+        oldValues[index] = oldValue;
+        newValues[index] = newValue;
+        comparisons[index] = comparisonCount;
+        memoryAccesses[index] = memoryAccessCount;
+    }
+
+    private void allocateColumns(int capacity) {
+        flags = flags == null ? new int[capacity] : Arrays.copyOf(flags, capacity);
+        operands1 = operands1 == null ? new int[capacity] : Arrays.copyOf(operands1, capacity);
+        operands2 = operands2 == null ? new int[capacity] : Arrays.copyOf(operands2, capacity);
+        primaryIndices = primaryIndices == null ? new int[capacity] : Arrays.copyOf(primaryIndices, capacity);
+        secondaryIndices = secondaryIndices == null ? new int[capacity] : Arrays.copyOf(secondaryIndices, capacity);
+        changedIndices = changedIndices == null ? new int[capacity] : Arrays.copyOf(changedIndices, capacity);
+        oldValues = oldValues == null ? new int[capacity] : Arrays.copyOf(oldValues, capacity);
+        newValues = newValues == null ? new int[capacity] : Arrays.copyOf(newValues, capacity);
+        comparisons = comparisons == null ? new long[capacity] : Arrays.copyOf(comparisons, capacity);
+        memoryAccesses = memoryAccesses == null ? new long[capacity] : Arrays.copyOf(memoryAccesses, capacity);
+    }
+
+    /**
+     * Chiude la registrazione rilasciando il riferimento all'array del motore
+     */
+    void finish() {
+        trackedArray = null;
+    }
+
+    public int size() { return stepCount; }
+    public boolean isRetainingSteps() { return retainSteps; }
+    public int getKeyframeInterval() { return keyframeInterval; }
+    public int getKeyframeCount() { return keyframeCount; }
+
+    /**
+     * Crea il passo indicato dalle colonne: ogni chiamata restituisce un nuovo oggetto.
+     * Il timestamp è l'ultima lettura dell'orologio che lo precede (vedi {@link #TIMESTAMP_INTERVAL}).
+     */
+    public CountingSortStep getStep(int stepIndex) {
+        checkIndex(stepIndex);
+        int stepFlags = flags[stepIndex];
+        return new CountingSortStep(
+            CountingSortStep.Opcode.fromOrdinal(stepFlags & OPCODE_MASK),
+            operands1[stepIndex],
+            operands2[stepIndex],
+            primaryIndices[stepIndex],
+            secondaryIndices[stepIndex],
+            timestamps[stepIndex / TIMESTAMP_INTERVAL],
+            comparisons[stepIndex],
+            0,
+            memoryAccesses[stepIndex],
+            changedIndices[stepIndex],
+            oldValues[stepIndex],
+            newValues[stepIndex],
+            (stepFlags & FLAG_KEYFRAME) != 0 ? keyframeStates[keyframePosition(stepIndex)] : null,
+            (stepFlags & FLAG_STATE_CHANGE) != 0,
+            this,
+            stepIndex
+        );
+    }
+
+    /**
+     * Vista dei passi: ogni elemento viene creato dalle colonne quando viene letto
+     */
+    public List<CountingSortStep> getSteps() {
+        if (!retainSteps) return Collections.emptyList();
+        return new StepList();
+    }
+
+    private final class StepList extends AbstractList<CountingSortStep> implements RandomAccess {
+        @Override
+        public CountingSortStep get(int index) { return getStep(index); }
+
+        @Override
+        public int size() { return stepCount; }
+    }
+
+    /**
+     * Indice del keyframe più vicino che precede (o coincide con) il passo indicato
+     */
+    public int keyframeAtOrBefore(int stepIndex) {
+        checkIndex(stepIndex);
+        return keyframeSteps[keyframePosition(stepIndex)];
+    }
+
+    /**
+     * Ricostruisce lo stato dell'array al passo indicato (incluso)
+     * @return Nuovo array con lo stato ricostruito
+     */
+    public int[] stateAt(int stepIndex) {
+        checkIndex(stepIndex);
+        int keyframe = keyframePosition(stepIndex);
+        int[] snapshot = keyframeStates[keyframe];
+        int[] state = Arrays.copyOf(snapshot, snapshot.length);
+        for (int i = keyframeSteps[keyframe] + 1; i <= stepIndex; i++) {
+            int changed = changedIndices[i];
+            if (changed != CountingSortStep.NO_CHANGE) state[changed] = newValues[i];
+        }
+        return state;
+    }
+
+    /**
+     * Posizione nella tabella dei keyframe dell'ultimo keyframe non successivo al passo
+     */
+    private int keyframePosition(int stepIndex) {
+        int pos = Arrays.binarySearch(keyframeSteps, 0, keyframeCount, stepIndex);
+        return pos < 0 ? -pos - 2 : pos; // Punto di inserimento - 1
+    }
+
+    private void checkIndex(int stepIndex) {
+        if (!retainSteps) {
+            throw new IllegalStateException("La traccia in streaming non conserva i passi");
+        }
+        if (stepIndex < 0 || stepIndex >= stepCount) {
+            throw new IndexOutOfBoundsException("Passo " + stepIndex + " fuori dalla traccia di " + stepCount + " passi");
+        }
+    }
+}
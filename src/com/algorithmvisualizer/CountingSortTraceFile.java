@@ -0,0 +1,264 @@
+package com.algorithmvisualizer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Lettura di una traccia salvata su file con {@link CountingSortTraceWriter}.
+ * Il file viene mappato in memoria con FileChannel.map, a segmenti da 1 GB per
+ * superare il limite di 2 GB di un singolo buffer: l'apertura legge solo header
+ * e tabella dei checkpoint, mentre i record dei passi e gli snapshot vengono caricati
+ * dal sistema operativo solo quando servono. Le descrizioni non sono salvate: ogni
+ * record contiene opcode e operandi e il testo si compone su richiesta, nella lingua
+ * del lettore.
+ *
+ * Formato (little endian):
+ * <pre>
+ *   header      64 byte: magic, versione, n, numero di passi, offset delle sezioni
+ *   passi       record da {@value #RECORD_SIZE} byte: contatori, operandi del passo,
+ *               indici evidenziati, delta (indice, valore precedente, valore nuovo),
+ *               flag con l'opcode nel secondo byte e offset dell'eventuale keyframe
+ *   payload     snapshot completi: lunghezza seguita dai valori
+ *   checkpoint  coppie (passo, offset del payload) in ordine di passo
+ * </pre>
+ */
+public class CountingSortTraceFile implements Closeable {
+
+    static final long MAGIC = 0x3145434152545343L; // "CSTRACE1" letto in little endian
+    static final int VERSION = 2; // La versione 1 salvava le descrizioni come stringhe
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_SIZE = 72;
+    static final int CHECKPOINT_ENTRY_SIZE = 16;
+    static final int FLAG_STATE_CHANGE = 1;
+    static final int FLAG_KEYFRAME = 2;
+    static final int OPCODE_SHIFT = 8; // Posizione dell'opcode nel campo dei flag
+    static final long NO_PAYLOAD = -1;
+
+    // Posizioni dei campi nel record di un passo
+    static final int REC_TIMESTAMP = 0;
+    static final int REC_COMPARISONS = 8;
+    static final int REC_SWAPS = 16;
+    static final int REC_MEMORY_ACCESSES = 24;
+    static final int REC_PAYLOAD = 32;
+    static final int REC_OPERAND1 = 40;
+    static final int REC_OPERAND2 = 44;
+    static final int REC_PRIMARY = 48;
+    static final int REC_SECONDARY = 52;
+    static final int REC_CHANGED = 56;
+    static final int REC_OLD_VALUE = 60;
+    static final int REC_NEW_VALUE = 64;
+    static final int REC_FLAGS = 68;
+
+    /** Record per segmento mappato: un segmento non supera 1 GB */
+    private static final int RECORDS_PER_SEGMENT = (1 << 30) / RECORD_SIZE;
+    /** Byte per segmento mappato degli snapshot: multiplo di 4, così nessun int resta diviso */
+    private static final int PAYLOAD_SEGMENT_SIZE = 1 << 30;
+
+    private final FileChannel channel;
+    private final int arrayLength;
+    private final int stepCount;
+    private final MappedByteBuffer[] segments;
+    private final MappedByteBuffer[] payloadSegments;
+    private final int[] checkpointSteps;
+    private final long[] checkpointPayloads;
+
+    private CountingSortTraceFile(FileChannel channel) throws IOException {
+        this.channel = channel;
+        if (channel.size() < HEADER_SIZE) {
+            throw new IOException("File di traccia non valido: intestazione troncata");
+        }
+        ByteBuffer header = map(0, HEADER_SIZE);
+        if (header.getLong(0) != MAGIC) {
+            throw new IOException("File di traccia non valido: intestazione non riconosciuta");
+        }
+        if (header.getInt(8) != VERSION) {
+            throw new IOException("Versione del file di traccia non supportata: " + header.getInt(8));
+        }
+        arrayLength = header.getInt(12);
+        long steps = header.getLong(16);
+        long recordsOffset = header.getLong(24);
+        long payloadOffset = header.getLong(32);
+        int checkpointCount = header.getInt(40);
+        long checkpointsOffset = header.getLong(48);
+        if (steps < 0 || steps > Integer.MAX_VALUE) {
+            throw new IOException("Numero di passi non valido: " + steps);
+        }
+        stepCount = (int) steps;
+
+        segments = new MappedByteBuffer[(stepCount + RECORDS_PER_SEGMENT - 1) / RECORDS_PER_SEGMENT];
+        for (int s = 0; s < segments.length; s++) {
+            long first = (long) s * RECORDS_PER_SEGMENT;
+            long records = Math.min(RECORDS_PER_SEGMENT, stepCount - first);
+            segments[s] = map(recordsOffset + first * RECORD_SIZE, records * RECORD_SIZE);
+        }
+
+        long payloadSize = checkpointsOffset - payloadOffset;
+        if (payloadOffset < HEADER_SIZE || payloadSize < 0 || checkpointsOffset > channel.size()) {
+            throw new IOException("File di traccia non valido: sezione degli snapshot fuori dal file");
+        }
+        payloadSegments = new MappedByteBuffer[(int) ((payloadSize + PAYLOAD_SEGMENT_SIZE - 1) / PAYLOAD_SEGMENT_SIZE)];
+        for (int s = 0; s < payloadSegments.length; s++) {
+            long first = (long) s * PAYLOAD_SEGMENT_SIZE;
+            payloadSegments[s] = map(payloadOffset + first, Math.min(PAYLOAD_SEGMENT_SIZE, payloadSize - first));
+        }
+
+        ByteBuffer checkpoints = map(checkpointsOffset, (long) checkpointCount * CHECKPOINT_ENTRY_SIZE);
+        checkpointSteps = new int[checkpointCount];
+        checkpointPayloads = new long[checkpointCount];
+        for (int i = 0; i < checkpointCount; i++) {
+            checkpointSteps[i] = checkpoints.getInt(i * CHECKPOINT_ENTRY_SIZE);
+            checkpointPayloads[i] = checkpoints.getLong(i * CHECKPOINT_ENTRY_SIZE + 8);
+        }
+    }
+
+    /**
+     * Apre e mappa un file di traccia in sola lettura
+     */
+    public static CountingSortTraceFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new CountingSortTraceFile(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getArrayLength() { return arrayLength; }
+    public int size() { return stepCount; }
+    public int getCheckpointCount() { return checkpointSteps.length; }
+
+    /**
+     * Tipo di un passo, senza materializzare il passo
+     */
+    public CountingSortStep.Opcode getOpcode(int stepIndex) {
+        int flags = record(stepIndex).getInt(recordPosition(stepIndex) + REC_FLAGS);
+        return CountingSortStep.Opcode.fromOrdinal(flags >>> OPCODE_SHIFT);
+    }
+
+    /**
+     * Descrizione di un passo nella lingua predefinita, senza materializzare il passo
+     */
+    public String getDescription(int stepIndex) {
+        ByteBuffer segment = record(stepIndex);
+        int pos = recordPosition(stepIndex);
+        return getOpcode(stepIndex).format(Locale.getDefault(),
+                segment.getInt(pos + REC_OPERAND1), segment.getInt(pos + REC_OPERAND2));
+    }
+
+    /**
+     * Ricostruisce il passo indicato; il passo non ha una traccia associata
+     * e va applicato in ordine come quelli ricevuti in streaming
+     */
+    public CountingSortStep getStep(int stepIndex) throws IOException {
+        ByteBuffer segment = record(stepIndex);
+        int pos = recordPosition(stepIndex);
+        int flags = segment.getInt(pos + REC_FLAGS);
+        long payload = segment.getLong(pos + REC_PAYLOAD);
+        return new CountingSortStep(
+            CountingSortStep.Opcode.fromOrdinal(flags >>> OPCODE_SHIFT),
+            segment.getInt(pos + REC_OPERAND1),
+            segment.getInt(pos + REC_OPERAND2),
+            segment.getInt(pos + REC_PRIMARY),
+            segment.getInt(pos + REC_SECONDARY),
+            segment.getLong(pos + REC_TIMESTAMP),
+            segment.getLong(pos + REC_COMPARISONS),
+            segment.getLong(pos + REC_SWAPS),
+            segment.getLong(pos + REC_MEMORY_ACCESSES),
+            segment.getInt(pos + REC_CHANGED),
+            segment.getInt(pos + REC_OLD_VALUE),
+            segment.getInt(pos + REC_NEW_VALUE),
+            (flags & FLAG_KEYFRAME) != 0 ? readPayload(payload) : null,
+            (flags & FLAG_STATE_CHANGE) != 0,
+            null,
+            stepIndex
+        );
+    }
+
+    /**
+     * Ricostruisce lo stato dell'array al passo indicato (incluso), partendo dal
+     * checkpoint più vicino: vengono letti solo lo snapshot e i record successivi
+     */
+    public int[] stateAt(int stepIndex) throws IOException {
+        checkIndex(stepIndex);
+        int pos = Arrays.binarySearch(checkpointSteps, stepIndex);
+        if (pos < 0) pos = -pos - 2; // Punto di inserimento - 1
+        int[] state = readPayload(checkpointPayloads[pos]);
+        for (int i = checkpointSteps[pos] + 1; i <= stepIndex; i++) {
+            ByteBuffer segment = record(i);
+            int recordPos = recordPosition(i);
+            if ((segment.getInt(recordPos + REC_FLAGS) & FLAG_KEYFRAME) != 0) {
+                state = readPayload(segment.getLong(recordPos + REC_PAYLOAD));
+            } else {
+                int changed = segment.getInt(recordPos + REC_CHANGED);
+                if (changed != CountingSortStep.NO_CHANGE) {
+                    state[changed] = segment.getInt(recordPos + REC_NEW_VALUE);
+                }
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Chiude il canale; i segmenti mappati vengono rilasciati dal garbage collector
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Legge uno snapshot dai segmenti già mappati, con letture assolute
+     * (i valori possono proseguire nel segmento successivo)
+     */
+    private int[] readPayload(long relativeOffset) {
+        int length = payloadInt(relativeOffset);
+        int[] values = new int[length];
+        long offset = relativeOffset + 4;
+        int i = 0;
+        while (i < length) {
+            ByteBuffer segment = payloadSegments[(int) (offset / PAYLOAD_SEGMENT_SIZE)];
+            int pos = (int) (offset % PAYLOAD_SEGMENT_SIZE);
+            int end = i + Math.min(length - i, (segment.limit() - pos) / 4);
+            for (; i < end; i++, pos += 4) {
+                values[i] = segment.getInt(pos);
+            }
+            offset = relativeOffset + 4 + (long) i * 4;
+        }
+        return values;
+    }
+
+    private int payloadInt(long relativeOffset) {
+        return payloadSegments[(int) (relativeOffset / PAYLOAD_SEGMENT_SIZE)]
+                .getInt((int) (relativeOffset % PAYLOAD_SEGMENT_SIZE));
+    }
+
+    private ByteBuffer record(int stepIndex) {
+        checkIndex(stepIndex);
+        return segments[stepIndex / RECORDS_PER_SEGMENT];
+    }
+
+    private static int recordPosition(int stepIndex) {
+        return (stepIndex % RECORDS_PER_SEGMENT) * RECORD_SIZE;
+    }
+
+    private MappedByteBuffer map(long offset, long length) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private void checkIndex(int stepIndex) {
+        if (stepIndex < 0 || stepIndex >= stepCount) {
+            throw new IndexOutOfBoundsException("Passo " + stepIndex + " fuori dalla traccia di " + stepCount + " passi");
+        }
+    }
+}
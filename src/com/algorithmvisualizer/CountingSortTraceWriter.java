@@ -0,0 +1,199 @@
+package com.algorithmvisualizer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static com.algorithmvisualizer.CountingSortTraceFile.*;
+
+/**
+ * Scrive una traccia nel formato binario letto da {@link CountingSortTraceFile}.
+ * I passi vengono accodati uno alla volta (anche direttamente dal motore tramite
+ * {@link CountingSortEngine#setStepCallback}), quindi la traccia non deve stare in memoria.
+ * I record sono scritti in sequenza nel file finale e gli snapshot in un file temporaneo,
+ * che alla chiusura viene accodato insieme alle tabelle; l'header viene scritto per ultimo.
+ * Oltre ai keyframe dei passi il writer salva periodicamente un checkpoint dello stato,
+ * così il lettore può ricostruire un passo qualsiasi leggendo solo una parte del file.
+ */
+public class CountingSortTraceWriter implements Closeable {
+
+    /** Numero di checkpoint periodici per ogni n passi scritti */
+    private static final int CHECKPOINTS_PER_ARRAY_LENGTH = 4;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final FileChannel payloadChannel;
+    private final ByteBuffer records = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer payload = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final int arrayLength;
+    private final int checkpointInterval;
+    private int[] checkpointSteps = new int[8];
+    private long[] checkpointPayloads = new long[8];
+    private int checkpointCount;
+    private long payloadSize;
+    private int[] state; // Stato dopo l'ultimo passo, per i checkpoint periodici
+    private int stepCount;
+    private boolean closed;
+
+    public CountingSortTraceWriter(Path path, int arrayLength) throws IOException {
+        this.arrayLength = arrayLength;
+        this.checkpointInterval = Math.max(CountingSortTrace.MIN_KEYFRAME_INTERVAL,
+                arrayLength / CHECKPOINTS_PER_ARRAY_LENGTH);
+        Path directory = path.toAbsolutePath().getParent();
+        Path payloadPath = Files.createTempFile(directory, "trace", ".payload");
+        FileChannel payloadFile = null;
+        try {
+            payloadFile = FileChannel.open(payloadPath, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+            this.payloadChannel = payloadFile;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            if (payloadFile != null) payloadFile.close();
+            Files.deleteIfExists(payloadPath);
+            throw e;
+        }
+        channel.position(HEADER_SIZE);
+    }
+
+    /**
+     * Scrive l'intera traccia di un'esecuzione registrata
+     * @throws IllegalArgumentException se il risultato non conserva i passi
+     */
+    public static void write(CountingSortResult result, Path path) throws IOException {
+        CountingSortTrace trace = result.getTrace();
+        if (trace == null || !trace.isRetainingSteps()) {
+            throw new IllegalArgumentException("Il risultato non contiene una traccia dei passi");
+        }
+        try (CountingSortTraceWriter writer = new CountingSortTraceWriter(path, (int) result.getElementCount())) {
+            for (CountingSortStep step : trace.getSteps()) {
+                writer.append(step);
+            }
+        }
+    }
+
+    /**
+     * Accoda il passo successivo
+     */
+    public void append(CountingSortStep step) throws IOException {
+        if (closed) throw new IllegalStateException("Writer della traccia già chiuso");
+        if (stepCount == Integer.MAX_VALUE) throw new IllegalStateException("Troppi passi per un file di traccia");
+        if (stepCount == 0 && !step.isKeyframe()) {
+            throw new IllegalArgumentException("Il primo passo deve contenere lo stato completo");
+        }
+        int index = stepCount++;
+        state = step.applyTo(state);
+
+        long keyframePayload = NO_PAYLOAD;
+        if (step.isKeyframe()) {
+            keyframePayload = writePayload(state);
+            addCheckpoint(index, keyframePayload);
+        } else if (index - checkpointSteps[checkpointCount - 1] >= checkpointInterval) {
+            addCheckpoint(index, writePayload(state));
+        }
+
+        if (records.remaining() < RECORD_SIZE) flush(records, channel);
+        int pos = records.position();
+        records.putLong(pos + REC_TIMESTAMP, step.getTimestamp());
+        records.putLong(pos + REC_COMPARISONS, step.getComparisons());
+        records.putLong(pos + REC_SWAPS, step.getSwaps());
+        records.putLong(pos + REC_MEMORY_ACCESSES, step.getMemoryAccesses());
+        records.putLong(pos + REC_PAYLOAD, keyframePayload);
+        records.putInt(pos + REC_OPERAND1, step.getOperand1());
+        records.putInt(pos + REC_OPERAND2, step.getOperand2());
+        records.putInt(pos + REC_PRIMARY, step.getPrimaryIndex());
+        records.putInt(pos + REC_SECONDARY, step.getSecondaryIndex());
+        records.putInt(pos + REC_CHANGED, step.getChangedIndex());
+        records.putInt(pos + REC_OLD_VALUE, step.getOldValue());
+        records.putInt(pos + REC_NEW_VALUE, step.getNewValue());
+        records.putInt(pos + REC_FLAGS, (step.isStateChange() ? FLAG_STATE_CHANGE : 0)
+                | (step.isKeyframe() ? FLAG_KEYFRAME : 0) | step.getOpcode().ordinal() << OPCODE_SHIFT);
+        records.position(pos + RECORD_SIZE);
+    }
+
+    public int size() { return stepCount; }
+
+    /**
+     * Completa il file: accoda snapshot e checkpoint, poi scrive l'header
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        try {
+            flush(records, channel);
+            flush(payload, payloadChannel);
+            long payloadOffset = channel.position();
+            for (long copied = 0; copied < payloadSize; ) {
+                copied += payloadChannel.transferTo(copied, payloadSize - copied, channel);
+            }
+            channel.position(payloadOffset + payloadSize);
+
+            long checkpointsOffset = channel.position();
+            for (int i = 0; i < checkpointCount; i++) {
+                if (records.remaining() < CHECKPOINT_ENTRY_SIZE) flush(records, channel);
+                records.putInt(checkpointSteps[i]).putInt(0).putLong(checkpointPayloads[i]);
+            }
+            flush(records, channel);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putLong(MAGIC).putInt(VERSION).putInt(arrayLength).putLong(stepCount)
+                  .putLong(HEADER_SIZE).putLong(payloadOffset)
+                  .putInt(checkpointCount).putInt(0).putLong(checkpointsOffset);
+            header.flip();
+            for (long position = 0; header.hasRemaining(); ) {
+                position += channel.write(header, position);
+            }
+        } finally {
+            try {
+                channel.close();
+            } finally {
+                payloadChannel.close(); // DELETE_ON_CLOSE rimuove il file temporaneo
+            }
+        }
+    }
+
+    private long writePayload(int[] values) throws IOException {
+        long offset = payloadSize;
+        if (payload.remaining() < 4) flush(payload, payloadChannel);
+        payload.putInt(values.length);
+        IntBuffer ints = payload.asIntBuffer();
+        for (int from = 0; from < values.length; ) {
+            if (!ints.hasRemaining()) {
+                payload.position(payload.position() + ints.position() * 4);
+                flush(payload, payloadChannel);
+                ints = payload.asIntBuffer();
+            }
+            int length = Math.min(ints.remaining(), values.length - from);
+            ints.put(values, from, length);
+            from += length;
+        }
+        payload.position(payload.position() + ints.position() * 4);
+        payloadSize += 4 + 4L * values.length;
+        return offset;
+    }
+
+    private void addCheckpoint(int stepIndex, long payloadOffset) {
+        if (checkpointCount == checkpointSteps.length) {
+            checkpointSteps = Arrays.copyOf(checkpointSteps, checkpointCount * 2);
+            checkpointPayloads = Arrays.copyOf(checkpointPayloads, checkpointCount * 2);
+        }
+        checkpointSteps[checkpointCount] = stepIndex;
+        checkpointPayloads[checkpointCount++] = payloadOffset;
+    }
+
+    private static void flush(ByteBuffer buffer, FileChannel target) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -1,31 +1,32 @@
 package com.algorithmvisualizer;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javafx.animation.*;
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.scene.Node;
 import javafx.scene.Scene;
-import javafx.scene.chart.LineChart;
-import javafx.scene.chart.NumberAxis;
-import javafx.scene.chart.XYChart;
 import javafx.scene.control.*;
 import javafx.scene.effect.*;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
-import javafx.scene.paint.LinearGradient;
-import javafx.scene.paint.Paint;
-import javafx.scene.paint.Stop;
-import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
 import javafx.stage.Stage;
 import javafx.util.Duration;
+import javafx.util.StringConverter;
 import javafx.concurrent.Task;
+import javafx.concurrent.Worker;
 
 
 /**
@@ -40,17 +41,59 @@ public class CountingSortVisualizerGUI extends Application {
     private Label statusLabel;
     private Button startButton;
     private ComboBox<String> algorithmSelector;
+    private ComboBox<CountingSortDataGenerator.Distribution> distributionSelector;
     private Slider arraySizeSlider;
     private Slider speedSlider;
     private ProgressBar progressBar;
     private Timeline glowAnimation;
-    private List<Rectangle> dataElements;
+    private CountingSortBarRenderer barRenderer; // Barre disegnate su un'unica immagine
     private int[] currentArray; // Array di dati corrente per la visualizzazione
+    private CountingSortStepStream activeStream; // Stream dei passi dell'esecuzione in corso
+    private CountingSortStepPlayer streamPlayback; // Resta attivo dopo la fine per navigare nei passi
+    private Button playPauseButton;
+    private Button stepBackButton;
+    private Button stepForwardButton;
+    private Slider scrubSlider;
+    private Label stepLabel;
+    private boolean updatingScrubSlider; // Evita che l'aggiornamento dal player generi un seek
+    private final CountingSortMetrics metrics = new CountingSortMetrics(); // Tempi per fase di tutte le esecuzioni
+    private Label metricsLabel;
+    private CountingSortPerformanceChart performanceChart; // Cronologia dei risultati, sopravvive ai reset
+    private Button cancelButton;
+    private Task<?> activeTask; // Esecuzione o misura corrente, null se nessuna
+    private long latestRun; // Identificativo dell'ultima esecuzione avviata
+    private volatile long executingRun; // Esecuzione in corso sul thread del motore
+    private volatile double engineProgress; // Avanzamento reale dell'ultima esecuzione, in [0, 1]
+    private volatile CountingSortEngine.Phase enginePhase;
+    private long latestGeneration; // Ultima generazione richiesta: le precedenti vengono scartate
+    private int sliderArraySize; // Dimensione dell'ultimo array richiesto dallo slider
+    private final SplittableRandom seeds = new SplittableRandom(); // Un seme diverso per ogni array
+
+    // Un solo thread per le esecuzioni: una nuova esecuzione annulla la precedente e parte
+    // quando questa ha liberato il thread, quindi non restano thread o passi orfani
+    private final ExecutorService runExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "counting-sort-run");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final int STEP_BUFFER_CAPACITY = 1024;
+    private static final int MAX_BAR_VALUE = 300; // Valore che occupa tutta l'altezza dell'area
+    private static final int MIN_BAR_VALUE = 20; // Minimo generato, per la visibilità dell'altezza
+    private static final int BAR_AREA_HEIGHT = 320;
+    // Modalità confrontate da "MISURA MODALITÀ" (EXTERNAL lavora su file)
+    private static final CountingSortEngine.EngineMode[] MEASURED_MODES = {
+        CountingSortEngine.EngineMode.SEQUENTIAL, CountingSortEngine.EngineMode.PARALLEL,
+        CountingSortEngine.EngineMode.RADIX, CountingSortEngine.EngineMode.ADAPTIVE
+    };
 
     @Override
     public void start(Stage primaryStage) {
         engine = new CountingSortEngine();
-        dataElements = new ArrayList<>();
+        engine.setMetrics(metrics);
+        engine.setProgressListener(this::onEngineProgress);
+        barRenderer = new CountingSortBarRenderer(1100, BAR_AREA_HEIGHT);
+        barRenderer.setValueRange(0, MAX_BAR_VALUE);
 
         primaryStage.setTitle("Visualizzatore Algoritmi di Ordinamento");
         BorderPane root = createAnimatedRoot();
@@ -79,7 +122,7 @@ public class CountingSortVisualizerGUI extends Application {
         ParallelTransition entrance = new ParallelTransition(fadeIn, stageOpacity);
         entrance.play();
 
-        generateRandomArray((int)arraySizeSlider.getValue()); // Genera array iniziale
+        onArraySizeSelected(); // Genera array iniziale
     }
 
     private BorderPane createAnimatedRoot() {
@@ -136,46 +179,87 @@ public class CountingSortVisualizerGUI extends Application {
         sizeBox.setAlignment(Pos.CENTER);
         Label sizeLabel = new Label("Dimensione Array: 50");
         sizeLabel.setTextFill(Color.WHITE);
-        arraySizeSlider = new Slider(10, 200, 50);
+        // Scala logaritmica: da 10 a 1.000.000 elementi
+        arraySizeSlider = new Slider(1, 6, Math.log10(50));
         arraySizeSlider.setShowTickLabels(true);
         arraySizeSlider.setShowTickMarks(true);
-        arraySizeSlider.setMajorTickUnit(50);
+        arraySizeSlider.setMajorTickUnit(1);
+        arraySizeSlider.setMinorTickCount(0);
+        arraySizeSlider.setLabelFormatter(new StringConverter<Double>() {
+            @Override
+            public String toString(Double exponent) {
+                return String.format("%,d", sizeForSliderValue(exponent));
+            }
+
+            @Override
+            public Double fromString(String size) {
+                return Math.log10(Double.parseDouble(size.replaceAll("[^0-9]", "")));
+            }
+        });
         // styleSlider(arraySizeSlider); // Stile da CSS
         addHoverEffect(arraySizeSlider);
         arraySizeSlider.valueProperty().addListener((obs, oldVal, newVal) -> {
-            sizeLabel.setText("Dimensione Array: " + newVal.intValue());
-            generateRandomArray(newVal.intValue());
+            sizeLabel.setText("Dimensione Array: " + selectedArraySize());
+            // Durante il trascinamento si rigenera solo al rilascio: con un milione di elementi costa
+            if (!arraySizeSlider.isValueChanging()) onArraySizeSelected();
+        });
+        // Il rilascio del cursore chiude il trascinamento senza cambiare il valore
+        arraySizeSlider.valueChangingProperty().addListener((obs, wasChanging, changing) -> {
+            if (!changing) onArraySizeSelected();
         });
         sizeBox.getChildren().addAll(sizeLabel, arraySizeSlider);
 
         VBox speedBox = new VBox(5);
         speedBox.setAlignment(Pos.CENTER);
-        Label speedLabel = new Label("Velocità: Normale");
+        // Velocità in passi al secondo, su scala logaritmica da 1 a 1.000.000
+        speedSlider = new Slider(0, 6, 1.3);
+        Label speedLabel = new Label(speedText());
         speedLabel.setTextFill(Color.WHITE);
-        speedSlider = new Slider(1, 10, 5);
         speedSlider.setShowTickLabels(true);
         speedSlider.setShowTickMarks(true);
+        speedSlider.setMajorTickUnit(1);
+        speedSlider.setMinorTickCount(0);
+        speedSlider.setLabelFormatter(arraySizeSlider.getLabelFormatter());
         // styleSlider(speedSlider); // Stile da CSS
         addHoverEffect(speedSlider);
         speedSlider.valueProperty().addListener((obs, oldVal, newVal) -> {
-            String[] speeds = {"Molto Lenta", "Lenta", "Normale", "Veloce", "Molto Veloce"};
-            int index = (int) Math.round(newVal.doubleValue() / 2.5) ; // Mappatura più granulare 1-4 -> 0-3
-            index = Math.min(speeds.length - 1, Math.max(0, index));
-            speedLabel.setText("Velocità: " + speeds[index]);
+            speedLabel.setText(speedText());
+            if (streamPlayback != null) streamPlayback.setStepsPerSecond(selectedStepsPerSecond());
         });
 
         speedBox.getChildren().addAll(speedLabel, speedSlider);
-        controlsBox.getChildren().addAll(sizeBox, speedBox);
+
+        VBox distributionBox = new VBox(5);
+        distributionBox.setAlignment(Pos.CENTER);
+        Label distributionLabel = new Label("Distribuzione");
+        distributionLabel.setTextFill(Color.WHITE);
+        distributionSelector = new ComboBox<>();
+        distributionSelector.getItems().addAll(CountingSortDataGenerator.Distribution.values());
+        distributionSelector.setValue(CountingSortDataGenerator.Distribution.UNIFORM);
+        addHoverEffect(distributionSelector);
+        distributionSelector.valueProperty().addListener((obs, oldVal, newVal) -> generateRandomArray(selectedArraySize()));
+        distributionBox.getChildren().addAll(distributionLabel, distributionSelector);
+
+        controlsBox.getChildren().addAll(sizeBox, speedBox, distributionBox);
 
         HBox buttonBox = new HBox(15);
         buttonBox.setAlignment(Pos.CENTER);
         startButton = createAnimatedButton("AVVIA ALGORITMO", Color.LIMEGREEN); // Leggermente diverso
         Button generateButton = createAnimatedButton("GENERA ARRAY", Color.ORANGE);
         Button resetButton = createAnimatedButton("RESET", Color.TOMATO);
+        Button measureButton = createAnimatedButton("MISURA MODALITÀ", Color.MEDIUMPURPLE);
+        cancelButton = createAnimatedButton("ANNULLA", Color.CRIMSON);
+        cancelButton.setDisable(true);
         startButton.setOnAction(e -> startAlgorithm());
-        generateButton.setOnAction(e -> generateRandomArray((int)arraySizeSlider.getValue()));
+        cancelButton.setOnAction(e -> {
+            cancelActiveRun();
+            progressBar.setProgress(0);
+            updateStatus("[ANNULLATO] Esecuzione interrotta.");
+        });
+        generateButton.setOnAction(e -> generateRandomArray(selectedArraySize()));
         resetButton.setOnAction(e -> resetVisualization());
-        buttonBox.getChildren().addAll(startButton, generateButton, resetButton);
+        measureButton.setOnAction(e -> measureModes());
+        buttonBox.getChildren().addAll(startButton, cancelButton, generateButton, resetButton, measureButton);
 
         progressBar = new ProgressBar(0);
         progressBar.setPrefWidth(400);
@@ -187,10 +271,69 @@ public class CountingSortVisualizerGUI extends Application {
         statusLabel.setFont(Font.font("Arial", FontWeight.BOLD, 16));
         // statusLabel.getStyleClass().add("status-label"); // Usa classe CSS
 
-        panel.getChildren().addAll(title, algorithmBox, controlsBox, buttonBox, progressBar, statusLabel);
+        HBox replayBox = createReplayControls();
+
+        // Riepilogo del registro delle metriche, visibile dopo la prima esecuzione
+        metricsLabel = new Label();
+        metricsLabel.setTextFill(Color.LIGHTGRAY);
+        metricsLabel.setFont(Font.font("Monospaced", 11));
+        metricsLabel.setVisible(false);
+        metricsLabel.setManaged(false);
+
+        panel.getChildren().addAll(title, algorithmBox, controlsBox, buttonBox, progressBar, replayBox, statusLabel,
+                metricsLabel);
         return panel;
     }
 
+    /**
+     * Controlli di navigazione nei passi: pausa/riprendi, passo indietro/avanti e slider di scorrimento
+     */
+    private HBox createReplayControls() {
+        HBox replayBox = new HBox(10);
+        replayBox.setAlignment(Pos.CENTER);
+        stepBackButton = createAnimatedButton("< PASSO", Color.DEEPSKYBLUE);
+        playPauseButton = createAnimatedButton("PAUSA", Color.DEEPSKYBLUE);
+        stepForwardButton = createAnimatedButton("PASSO >", Color.DEEPSKYBLUE);
+        for (Button button : new Button[] {stepBackButton, playPauseButton, stepForwardButton}) {
+            button.setPrefSize(120, 32);
+        }
+        stepBackButton.setOnAction(e -> { if (streamPlayback != null) streamPlayback.stepBack(); updateReplayControls(); });
+        stepForwardButton.setOnAction(e -> { if (streamPlayback != null) streamPlayback.stepForward(); updateReplayControls(); });
+        playPauseButton.setOnAction(e -> {
+            if (streamPlayback == null) return;
+            if (streamPlayback.isPlaying()) streamPlayback.pause(); else streamPlayback.play();
+            updateReplayControls();
+        });
+
+        scrubSlider = new Slider(0, 1, 0);
+        scrubSlider.setPrefWidth(500);
+        addHoverEffect(scrubSlider);
+        scrubSlider.valueProperty().addListener((obs, oldVal, newVal) -> {
+            if (updatingScrubSlider || streamPlayback == null) return;
+            streamPlayback.pause();
+            streamPlayback.seekTo((int) Math.round(newVal.doubleValue()));
+            updateReplayControls();
+        });
+
+        stepLabel = new Label("Passo -");
+        stepLabel.setTextFill(Color.WHITE);
+        stepLabel.setMinWidth(260);
+
+        replayBox.getChildren().addAll(stepBackButton, playPauseButton, stepForwardButton, scrubSlider, stepLabel);
+        updateReplayControls();
+        return replayBox;
+    }
+
+    private void updateReplayControls() {
+        boolean available = streamPlayback != null;
+        stepBackButton.setDisable(!available);
+        playPauseButton.setDisable(!available);
+        stepForwardButton.setDisable(!available);
+        scrubSlider.setDisable(!available);
+        playPauseButton.setText(available && streamPlayback.isPlaying() ? "PAUSA" : "RIPRENDI");
+        if (!available) stepLabel.setText("Passo -");
+    }
+
     private Button createAnimatedButton(String text, Color glowColor) {
         Button button = new Button(text);
         // Stile da CSS, ma fallback:
@@ -251,73 +394,99 @@ public class CountingSortVisualizerGUI extends Application {
         vizTitle.setFont(Font.font("Arial", FontWeight.BOLD, 18));
         vizTitle.setTextFill(Color.WHITE);
 
-        area.getChildren().add(vizTitle);
+        // L'immagine segue la larghezza dell'area, al netto del padding
+        area.widthProperty().addListener((obs, oldWidth, newWidth) ->
+            barRenderer.resize((int) Math.max(1, newWidth.doubleValue() - 40), BAR_AREA_HEIGHT));
+
+        performanceChart = new CountingSortPerformanceChart();
+        area.getChildren().addAll(vizTitle, barRenderer.getNode(), performanceChart.getNode());
         return area;
     }
 
+    private int selectedArraySize() {
+        return sizeForSliderValue(arraySizeSlider.getValue());
+    }
+
+    private double selectedStepsPerSecond() {
+        return Math.pow(10, speedSlider.getValue());
+    }
+
+    private String speedText() {
+        return String.format("Velocità: %,d passi/s", Math.round(selectedStepsPerSecond()));
+    }
 
+    private static int sizeForSliderValue(double exponent) {
+        return (int) Math.round(Math.pow(10, exponent));
+    }
 
+
+
+    /**
+     * Rigenera l'array per la dimensione scelta con lo slider, una sola volta per valore:
+     * al rilascio possono notificare sia il valore sia la fine del trascinamento
+     */
+    private void onArraySizeSelected() {
+        int size = selectedArraySize();
+        if (size == sliderArraySize) return;
+        sliderArraySize = size;
+        generateRandomArray(size);
+    }
+
+    /**
+     * Genera un nuovo array fuori dal thread FX, in parallelo sul common pool;
+     * se nel frattempo viene richiesto un altro array, il risultato viene scartato.
+     * Un errore della generazione viene riportato nella barra di stato
+     */
     private void generateRandomArray(int size) {
-        currentArray = new int[size];
-        Random random = new Random();
-
-        visualizationArea.getChildren().removeIf(node -> node instanceof HBox && "arrayBox".equals(node.getId()));
-        dataElements.clear();
-
-        HBox arrayBox = new HBox(Math.max(1, 800.0 / size > 5 ? 2 : 1)); // Spaziatura dinamica
-        arrayBox.setAlignment(Pos.CENTER);
-        arrayBox.setId("arrayBox");
-
-        double barWidth = Math.max(2, (visualizationArea.getWidth() > 0 ? visualizationArea.getWidth() * 0.8 : 800.0) / size - arrayBox.getSpacing());
-        if (size > 100) barWidth = Math.max(1, barWidth * 0.7); // Riduci larghezza per molti elementi
-
-
-        for (int i = 0; i < size; i++) {
-            currentArray[i] = random.nextInt(280) + 20; // Minimo 20 per visibilità altezza
-            
-            Rectangle element = new Rectangle(barWidth, currentArray[i]);
-            element.setFill(createGradientFill());
-            element.setArcWidth(5); // Arrotonda angoli barre
-            element.setArcHeight(5);
-
-            DropShadow elementGlow = new DropShadow();
-            elementGlow.setColor(Color.rgb(102,126,234,0.7)); // Colore glow base
-            elementGlow.setRadius(5);
-            element.setEffect(elementGlow);
-
-            dataElements.add(element);
-            arrayBox.getChildren().add(element);
-
-            element.setOpacity(0);
-            TranslateTransition tt = new TranslateTransition(Duration.millis(100 + i * (1000.0/size)), element);
-            tt.setFromY(30);
-            tt.setToY(0);
-            FadeTransition ft = new FadeTransition(Duration.millis(200 + i * (1000.0/size)), element);
-            ft.setToValue(1);
-            
-            ParallelTransition pt = new ParallelTransition(tt, ft);
-            pt.play();
+        cancelActiveRun(); // Un nuovo array sostituisce l'esecuzione in corso
+        final long generation = ++latestGeneration;
+        final CountingSortDataGenerator generator;
+        try {
+            generator = new CountingSortDataGenerator(distributionSelector.getValue(),
+                    MIN_BAR_VALUE, MAX_BAR_VALUE - 1, seeds.nextLong());
+        } catch (IllegalArgumentException e) {
+            updateStatus("[ERRORE] Generazione dell'array non riuscita: " + e.getMessage());
+            return;
         }
-        visualizationArea.getChildren().add(arrayBox);
-        updateStatus("[OK] Array generato con " + size + " elementi!");
-        resetVisualizationState();
+        CompletableFuture.supplyAsync(() -> generator.generate(size))
+                .whenCompleteAsync((data, error) -> {
+                    if (generation != latestGeneration) return;
+                    if (error == null) {
+                        showGeneratedArray(data, generator);
+                        return;
+                    }
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error; // Es. OutOfMemoryError per un array troppo grande
+                    updateStatus("[ERRORE] Generazione dell'array non riuscita: "
+                            + (cause.getMessage() != null ? cause.getMessage() : cause));
+                }, Platform::runLater);
     }
 
-    private LinearGradient createGradientFill() {
-        return new LinearGradient(0, 0, 0, 1, true, null,
-            new Stop(0, Color.web("#667eea")),
-            new Stop(0.5, Color.web("#764ba2")),
-            new Stop(1, Color.web("#8364a6")) // Leggermente modificato per omogeneità
-        );
+    private void showGeneratedArray(int[] data, CountingSortDataGenerator generator) {
+        cancelActiveRun(); // Un'esecuzione avviata durante la generazione usava il vecchio array
+        currentArray = data;
+
+        barRenderer.clearHighlights();
+        barRenderer.setRainbowFraction(0);
+        barRenderer.setValues(currentArray);
+
+        Node bars = barRenderer.getNode();
+        bars.setOpacity(0);
+        TranslateTransition tt = new TranslateTransition(Duration.millis(600), bars);
+        tt.setFromY(30);
+        tt.setToY(0);
+        FadeTransition ft = new FadeTransition(Duration.millis(800), bars);
+        ft.setToValue(1);
+        new ParallelTransition(tt, ft).play();
+
+        updateStatus(String.format("[OK] Array generato con %,d elementi (%s, seme %d)!",
+                data.length, generator.getDistribution(), generator.getSeed()));
+        resetVisualizationState();
     }
 
     private void updateVisualizationFromArrayState(int[] arrayState) {
-        if (arrayState == null || dataElements.isEmpty()) return;
-        for (int i = 0; i < dataElements.size() && i < arrayState.length; i++) {
-            if (dataElements.get(i) != null) {
-                dataElements.get(i).setHeight(Math.max(1, arrayState[i]));
-            }
-        }
+        if (arrayState == null) return;
+        barRenderer.setValues(arrayState);
     }
 
     private void startAlgorithm() {
@@ -327,226 +496,276 @@ public class CountingSortVisualizerGUI extends Application {
             return;
         }
         updateStatus("[ESECUZIONE] " + selectedAlgorithm + " in corso...");
-        startButton.setDisable(true);
+        cancelActiveRun(); // La nuova esecuzione sostituisce quella in corso
+        final long run = ++latestRun;
+        engineProgress = 0;
+        enginePhase = null;
         progressBar.setProgress(0);
 
-        // Usare un Task per eseguire l'algoritmo in background
-        Task<Object> algorithmTask = new Task<Object>() {
+        // I passi arrivano dal motore attraverso un buffer limitato: l'animazione parte
+        // dal primo passo e il motore si ferma quando il buffer è pieno
+        final CountingSortStepStream stream =
+            new CountingSortStepStream(STEP_BUFFER_CAPACITY, CountingSortStepStream.OverflowPolicy.BLOCK);
+        final int[] input = currentArray; // Il motore non modifica l'input: nessuna copia
+
+        // Il Task gira sull'executor condiviso; annullarlo interrompe il motore
+        Task<CountingSortResult> algorithmTask = new Task<CountingSortResult>() {
             @Override
-            protected Object call() throws Exception {
-                // Simula un po' di lavoro per la progress bar iniziale
-                for(int i=0; i<3; i++){
-                    updateProgress(i, 10); // Simula progresso
-                    Thread.sleep(100); // Non blocca la GUI perché è in un Task
-                }
-return engine.executeAlgorithm(currentArray.clone()); // Work on a copy
+            protected CountingSortResult call() {
+                executingRun = run;
+                return engine.executeStreaming(input, CountingSortEngine.TraceLevel.FULL, stream);
             }
         };
 
-        algorithmTask.setOnSucceeded(event -> {
-            Object algorithmResult = algorithmTask.getValue();
-            progressBar.setProgress(0.1); // Progresso dopo calcolo engine, prima dell'animazione
-            CountingSortResult result = (CountingSortResult) algorithmResult;
-            animateAlgorithmSteps(result.getSteps(), result.getFinalArrayState(), result.getExecutionTime());
-        });
-
         algorithmTask.setOnFailed(event -> {
+            if (algorithmTask != activeTask || algorithmTask.getException() instanceof CancellationException) {
+                return; // Esecuzione sostituita o annullata: la GUI è già passata oltre
+            }
+            cancelActiveRun();
             updateStatus("[ERRORE] Errore durante l'esecuzione dell'algoritmo: " + algorithmTask.getException().getMessage());
-            startButton.setDisable(false);
             progressBar.setProgress(0);
         });
 
-        // Collega il progresso del task alla progress bar (opzionale se l'animazione è principale)
-        // progressBar.progressProperty().bind(algorithmTask.progressProperty());
-        new Thread(algorithmTask).start();
+        activeTask = algorithmTask;
+        cancelButton.setDisable(false);
+        animateStreamedSteps(stream, algorithmTask, input.length);
+        runExecutor.execute(algorithmTask);
     }
 
-    private void animateAlgorithmSteps(List<CountingSortStep> steps, int[] finalArrayState, long engineExecutionTimeMs) {
-        if (steps == null || steps.isEmpty()) {
-            updateStatus("[INFO] Nessuno step da visualizzare o algoritmo non produce step.");
-            if (finalArrayState != null) {
-                updateVisualizationFromArrayState(finalArrayState);
-                currentArray = finalArrayState.clone();
-            }
-            animateCompletion();
-            startButton.setDisable(false);
-
-            return;
+    /**
+     * Avanzamento notificato dal motore sul thread dell'esecuzione: viene solo memorizzato
+     * e la progress bar lo legge a ogni frame dell'animazione. FIND_RANGE, COUNT e OUTPUT
+     * scorrono l'input una volta ciascuna, le somme prefisse sono implicite nel riempimento.
+     */
+    private void onEngineProgress(CountingSortEngine.Phase phase, long done, long total) {
+        if (executingRun != latestRun) return; // Notifica di un'esecuzione già sostituita
+        double fraction = total == 0 ? 1 : (double) done / total;
+        switch (phase) {
+            case FIND_RANGE: engineProgress = fraction / 3; break;
+            case COUNT: engineProgress = (1 + fraction) / 3; break;
+            case PREFIX: engineProgress = 2.0 / 3; break;
+            default: engineProgress = (2 + fraction) / 3; break;
         }
+        enginePhase = phase;
+    }
 
-        Timeline timeline = new Timeline();
-        double baseDelayPerStep = Math.max(50, 2500.0 / speedSlider.getValue() / (steps.size() > 100 ? Math.log(steps.size()) : 1)); // Più veloce per molti step
-        double minorOpFactor = 0.5; // Gli step non "StateChange" sono più veloci
-
-        double accumulatedDelay = 0;
-
-        for (int k = 0; k < steps.size(); k++) {
-            CountingSortStep step = steps.get(k);
-            final int currentStepIndexInAnimation = k;
+    /**
+     * Annulla l'esecuzione in corso: interrompe il thread del motore, sblocca lo stream
+     * e ferma l'animazione. Il player di un'esecuzione già terminata viene fermato
+     * allo stesso modo, perché la prossima esecuzione lo sostituisce.
+     */
+    private void cancelActiveRun() {
+        if (activeTask != null) {
+            activeTask.cancel(true);
+            activeTask = null;
+        }
+        stopStreamPlayback();
+        cancelButton.setDisable(true);
+    }
 
-            KeyFrame kf = new KeyFrame(Duration.millis(accumulatedDelay), e -> {
-                updateStatus(step.getDescription());
-                updateVisualizationFromArrayState(step.getArrayState());
-                resetAllElementEffects();
+    @Override
+    public void stop() {
+        cancelActiveRun();
+        runExecutor.shutdownNow();
+    }
 
-                if (step.getPrimaryIndex() != -1) {
-                    highlightElement(step.getPrimaryIndex(), Color.YELLOWGREEN, true);
+    /**
+     * Visualizza i passi man mano che arrivano dallo stream, alla velocità scelta in
+     * passi al secondo: a ogni frame il player applica tutti i passi maturati e la GUI
+     * mostra solo l'ultimo. I passi vengono registrati in un replay, così si può
+     * mettere in pausa, tornare indietro e scorrere l'esecuzione anche dopo la fine.
+     */
+    private void animateStreamedSteps(CountingSortStepStream stream, Task<CountingSortResult> algorithmTask, int arraySize) {
+        CountingSortReplay replay = new CountingSortReplay(arraySize);
+        streamPlayback = new CountingSortStepPlayer(replay, stream, barRenderer, selectedStepsPerSecond(),
+            new CountingSortStepPlayer.Listener() {
+                @Override
+                public void onPositionChanged(CountingSortStep step, int[] state, int position, int recordedSteps) {
+                    showStep(step);
+                    progressBar.setProgress(Math.min(0.99, engineProgress));
+                    updatingScrubSlider = true;
+                    scrubSlider.setMax(Math.max(1, recordedSteps - 1));
+                    scrubSlider.setValue(position);
+                    updatingScrubSlider = false;
+                    CountingSortEngine.Phase phase = enginePhase;
+                    stepLabel.setText(String.format("Passo %,d / %,d%s", position + 1, recordedSteps,
+                            phase == null ? "" : " - " + phase));
                 }
-                if (step.getSecondaryIndex() != -1) {
-                    // Se è lo stesso del primario (es. pivot), usa un altro colore o non evidenziare due volte
-                    if (step.getSecondaryIndex() != step.getPrimaryIndex()){
-                        highlightElement(step.getSecondaryIndex(), Color.LIGHTCORAL, true);
+
+                @Override
+                public void onFinished(int[] state) {
+                    updateReplayControls();
+                    // Il motore chiude lo stream appena prima che il Task termini
+                    if (algorithmTask.getState() == Worker.State.SUCCEEDED) {
+                        finishStreamPlayback(state, algorithmTask.getValue());
                     } else {
-                         highlightElement(step.getSecondaryIndex(), Color.GOLD, true); // Colore diverso se è lo stesso indice
+                        algorithmTask.setOnSucceeded(e -> {
+                            if (algorithmTask == activeTask) finishStreamPlayback(state, algorithmTask.getValue());
+                        });
                     }
                 }
-                progressBar.setProgress((double)(currentStepIndexInAnimation + 1) / steps.size());
             });
-            timeline.getKeyFrames().add(kf);
-            accumulatedDelay += step.isStateChange() ? baseDelayPerStep : baseDelayPerStep * minorOpFactor;
-        }
-        
-        // KeyFrame per lo stato finale e pulizia
-        KeyFrame finalKeyFrame = new KeyFrame(Duration.millis(accumulatedDelay + baseDelayPerStep), e -> {
-            updateVisualizationFromArrayState(finalArrayState);
-            currentArray = finalArrayState.clone(); // Aggiorna l'array GUI con lo stato finale
-            resetAllElementEffects();
-            animateCompletion();
-            String algoName = steps.get(0).getAlgorithm();
-            updateStatus("[COMPLETATO] " + algoName + " completato! Tempo Engine: " + engineExecutionTimeMs + "ms.");
-            startButton.setDisable(false);
-            progressBar.setProgress(1.0);
-        });
-        timeline.getKeyFrames().add(finalKeyFrame);
-
-        timeline.play();
+        activeStream = stream;
+        streamPlayback.play();
+        updateReplayControls();
     }
 
-    private void highlightElement(int index, Color color, boolean temporary) {
-        if (index >= 0 && index < dataElements.size()) {
-            Rectangle element = dataElements.get(index);
-            if (element == null) return;
-
-            // Salva effetto e stroke originali se non già fatto (per ripristino più preciso)
-            // Object originalEffect = element.getUserData() instanceof Effect ? element.getUserData() : element.getEffect();
-            // if (!(element.getUserData() instanceof Effect)) element.setUserData(originalEffect);
-            
-            element.setStroke(color.interpolate(Color.BLACK, 0.3)); 
-            element.setStrokeWidth(2); 
-
-            DropShadow highlightGlow = new DropShadow(12, color); // Raggio e colore per evidenziazione
-            // Composizione effetti: glow + (forse) il base glow
-            // element.setEffect(new Blend(BlendMode.ADD, baseGlow, highlightGlow));
-            element.setEffect(highlightGlow);
-
+    /**
+     * Mostra l'ultimo passo di un blocco: le barre sono già aggiornate dal player,
+     * qui si aggiornano descrizione ed evidenziazioni
+     */
+    private void showStep(CountingSortStep step) {
+        if (speedSlider.getValue() <= 1) {
+            updateStatus(step.getDescription());
+        } else {
+            statusLabel.setText(step.getDescription()); // Troppi messaggi al secondo per la dissolvenza
+        }
+        resetAllElementEffects();
 
-            ScaleTransition st = new ScaleTransition(Duration.millis(100), element);
-            st.setToX(1.05);
-            st.setToY(1.05);
-            st.setAutoReverse(true);
-            st.setCycleCount(2);
-            st.play();
+        if (step.getPrimaryIndex() != -1) {
+            highlightElement(0, step.getPrimaryIndex(), Color.YELLOWGREEN);
+        }
+        if (step.getSecondaryIndex() != -1) {
+            // Se è lo stesso del primario (es. pivot), usa un altro colore o non evidenziare due volte
+            if (step.getSecondaryIndex() != step.getPrimaryIndex()){
+                highlightElement(1, step.getSecondaryIndex(), Color.LIGHTCORAL);
+            } else {
+                 highlightElement(1, step.getSecondaryIndex(), Color.GOLD); // Colore diverso se è lo stesso indice
+            }
         }
     }
 
-    private void resetAllElementEffects() {
-        for (Rectangle element : dataElements) {
-            if (element == null) continue;
-            element.setStroke(null);
-            // Ripristina effetto base
-            // if (element.getUserData() instanceof Effect) {
-            //    element.setEffect((Effect)element.getUserData());
-            // } else {
-                DropShadow baseGlow = new DropShadow();
-                baseGlow.setColor(Color.rgb(102,126,234,0.7)); // Colore glow base
-                baseGlow.setRadius(5);
-                element.setEffect(baseGlow);
-            // }
+    private void finishStreamPlayback(int[] replayedState, CountingSortResult result) {
+        activeStream = null; // Il motore ha finito: il player resta per la navigazione
+        int[] finalArrayState = result.getFinalArrayState();
+        if (replayedState == null) {
+            updateStatus("[INFO] Nessuno step da visualizzare o algoritmo non produce step.");
+            updateVisualizationFromArrayState(finalArrayState);
+        }
+        currentArray = finalArrayState; // Aggiorna l'array GUI con lo stato finale (nuovo array del motore)
+        resetAllElementEffects();
+        animateCompletion();
+        if (replayedState != null) {
+            updateStatus("[COMPLETATO] " + algorithmSelector.getValue() + " completato! Tempo Engine: " + result.getExecutionTime() + "ms.");
         }
+        activeTask = null; // Il player resta attivo, ma non c'è più nulla da annullare
+        cancelButton.setDisable(true);
+        progressBar.setProgress(1.0);
+        updateMetricsLabel();
+        performanceChart.add(result, true);
     }
-    
- // Example animateCompletion method (adjusted with the fix)
-    private void animateCompletion() {
-        Timeline rainbowWave = new Timeline();
-        for (int i = 0; i < dataElements.size(); i++) {
-            final Rectangle element = dataElements.get(i);
-            if (element == null) continue;
-
-            FillTransition ft = new FillTransition(Duration.millis(500), element);
-            
-            // Fix for ClassCastException: LinearGradient cannot be cast to Color
-            // Check the current fill type before setting the 'from' value
-            Paint currentFill = element.getFill();
-            if (currentFill instanceof Color) {
-                ft.setFromValue((Color) currentFill);
-            } else if (currentFill instanceof LinearGradient) {
-                LinearGradient lg = (LinearGradient) currentFill;
-                if (!lg.getStops().isEmpty()) {
-                    ft.setFromValue(lg.getStops().get(0).getColor()); // Use the first color of the gradient
-                } else {
-                    ft.setFromValue(Color.LIGHTGRAY); // Fallback if gradient is empty
+
+    /**
+     * Ordina l'array corrente senza traccia in ogni modalità in memoria, sul thread delle
+     * esecuzioni, e aggiunge i risultati al grafico delle prestazioni man mano che arrivano.
+     * Come un'esecuzione, la misura si annulla con ANNULLA e viene sostituita da una nuova
+     * esecuzione, misura o generazione.
+     */
+    private void measureModes() {
+        if (currentArray == null || currentArray.length == 0) {
+            updateStatus("[ATTENZIONE] Genera prima un array!");
+            return;
+        }
+        cancelActiveRun(); // La misura sostituisce l'esecuzione in corso
+        final long run = ++latestRun;
+        final int[] input = currentArray;
+        updateStatus(String.format("[MISURA] %,d elementi in %d modalità...", input.length, MEASURED_MODES.length));
+
+        Task<Void> measureTask = new Task<Void>() {
+            @Override
+            protected Void call() {
+                executingRun = run;
+                for (CountingSortEngine.EngineMode mode : MEASURED_MODES) {
+                    if (isCancelled()) break;
+                    CountingSortResult result = engine.executeAlgorithm(input, mode);
+                    Platform.runLater(() -> {
+                        if (this == activeTask) performanceChart.add(result, false);
+                    });
                 }
-            } else {
-                ft.setFromValue(Color.LIGHTGRAY); // Fallback for other Paint types or null
+                return null;
             }
+        };
 
-            ft.setToValue(Color.hsb( (i * 360.0 / dataElements.size()) % 360, 0.8, 0.9));
-            ft.setDelay(Duration.millis(i * (500.0 / dataElements.size()) ));
-            
-            ScaleTransition st = new ScaleTransition(Duration.millis(250), element);
-            st.setToY(1.1);
-            st.setToX(1.02);
-            st.setAutoReverse(true);
-            st.setCycleCount(2);
-            st.setDelay(Duration.millis(i * (500.0 / dataElements.size()) ));
-
-            ParallelTransition pt = new ParallelTransition(ft, st);
-            pt.play();
-        }
-        
-        rainbowWave.setOnFinished(e -> {
-            // Ritorno ai colori originali con un un fade
-            for (int i = 0; i < dataElements.size(); i++) {
-                 final Rectangle el = dataElements.get(i);
-                 if (el == null) continue;
-
-                 // Corrected part from previous turn: Use Timeline with KeyValue to set fillProperty to LinearGradient
-                 Timeline resetFillTimeline = new Timeline(
-                     new KeyFrame(Duration.millis(300 + (i * (200.0/dataElements.size()))), // Add a small base duration for the transition itself
-                         new KeyValue(el.fillProperty(), createGradientFill(), Interpolator.EASE_OUT)
-                     )
-                 );
-                 resetFillTimeline.play();
+        measureTask.setOnSucceeded(event -> {
+            if (measureTask != activeTask) return;
+            activeTask = null;
+            cancelButton.setDisable(true);
+            updateStatus(String.format("[MISURA] Completata su %,d elementi.", input.length));
+            updateMetricsLabel();
+        });
+        measureTask.setOnFailed(event -> {
+            if (measureTask != activeTask || measureTask.getException() instanceof CancellationException) {
+                return; // Misura sostituita o annullata: la GUI è già passata oltre
             }
+            cancelActiveRun();
+            updateStatus("[ERRORE] Misura non riuscita: " + measureTask.getException().getMessage());
         });
-        
-        // Add a KeyFrame to the rainbowWave timeline to ensure its setOnFinished event fires.
-        // The duration should be long enough for all individual ParallelTransitions to complete.
-        double maxAnimationDuration = (dataElements.size() - 1) * (500.0 / dataElements.size()) + 500; // Max delay + max FillTransition duration
-        rainbowWave.getKeyFrames().add(new KeyFrame(Duration.millis(maxAnimationDuration)));
-        rainbowWave.play();
+
+        activeTask = measureTask;
+        cancelButton.setDisable(false);
+        runExecutor.execute(measureTask);
+    }
+
+    private void updateMetricsLabel() {
+        metricsLabel.setText(metrics.format().trim());
+        metricsLabel.setVisible(true);
+        metricsLabel.setManaged(true);
     }
 
+    /**
+     * Ferma l'animazione in corso e sblocca il motore se è in attesa sullo stream
+     */
+    private void stopStreamPlayback() {
+        if (streamPlayback != null) {
+            streamPlayback.pause();
+            streamPlayback = null;
+            updateReplayControls();
+        }
+        if (activeStream != null) {
+            activeStream.cancel();
+            activeStream = null;
+        }
+    }
 
+    private void highlightElement(int slot, int index, Color color) {
+        barRenderer.setHighlight(slot, index, color);
+    }
+
+    private void resetAllElementEffects() {
+        barRenderer.clearHighlights();
+    }
+
+    /**
+     * Onda arcobaleno da sinistra a destra, poi ritorno al gradiente originale
+     */
+    private void animateCompletion() {
+        DoubleProperty rainbow = new SimpleDoubleProperty(0);
+        rainbow.addListener((obs, oldValue, newValue) -> barRenderer.setRainbowFraction(newValue.doubleValue()));
+        Timeline rainbowWave = new Timeline(
+            new KeyFrame(Duration.ZERO, new KeyValue(rainbow, 0)),
+            new KeyFrame(Duration.millis(500), new KeyValue(rainbow, 1)),
+            new KeyFrame(Duration.millis(1000), new KeyValue(rainbow, 1)),
+            new KeyFrame(Duration.millis(1300), new KeyValue(rainbow, 0, Interpolator.EASE_OUT))
+        );
+        rainbowWave.play();
+    }
 
     private void resetVisualization() {
+        cancelActiveRun();
         // Non pulire performanceChart qui, per mantenere la cronologia delle performance
         if (currentArray != null && currentArray.length > 0) {
-             generateRandomArray((int)arraySizeSlider.getValue()); 
+             generateRandomArray(selectedArraySize());
         } else { // Se non c'è array, pulisci l'area
-            visualizationArea.getChildren().removeIf(node -> node instanceof HBox && "arrayBox".equals(node.getId()));
-            dataElements.clear();
+            barRenderer.setValues(null);
         }
         progressBar.setProgress(0);
         updateStatus("[RESET] Visualizzazione resettata. Genera o esegui.");
         resetAllElementEffects();
-        startButton.setDisable(false);
     }
     
     private void resetVisualizationState() { // Chiamato dopo la generazione dell'array
         progressBar.setProgress(0);
         resetAllElementEffects();
-        startButton.setDisable(false);
         // Non cancella i dati del grafico delle performance qui
     }
 
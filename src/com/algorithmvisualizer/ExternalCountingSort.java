@@ -0,0 +1,147 @@
+package com.algorithmvisualizer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Counting Sort fuori memoria su canali di int binari a 32 bit.
+ * La prima passata legge l'input a blocchi e costruisce l'istogramma; la seconda
+ * scrive direttamente sul canale di output, per ogni valore, la sequenza delle sue
+ * occorrenze. L'input viene letto una sola volta e in memoria restano solo
+ * l'istogramma e due buffer: O(k + buffer) invece di O(n).
+ * L'intervallo dei valori non è noto in anticipo: i conteggi vanno in un
+ * {@link CountingSortHistogram}, che cresce quando un blocco contiene valori fuori
+ * dall'intervallo coperto e ha contatori a 64 bit, perché l'input può superare
+ * la dimensione di un array Java.
+ * Un'istanza descrive una singola esecuzione.
+ */
+final class ExternalCountingSort {
+
+    private final int bufferBytes;
+    private final ByteOrder order;
+    private final long[] phaseNanos = new long[CountingSortEngine.Phase.values().length];
+    private long elementCount;
+    private int minValue;
+    private int maxValue;
+    private final CountingSortHistogram histogram = new CountingSortHistogram();
+
+    ExternalCountingSort(int bufferBytes, ByteOrder order) {
+        checkBufferBytes(bufferBytes);
+        this.bufferBytes = bufferBytes;
+        this.order = order;
+    }
+
+    static void checkBufferBytes(int bufferBytes) {
+        if (bufferBytes < 4 || bufferBytes % 4 != 0) {
+            throw new IllegalArgumentException("Dimensione del buffer non valida: " + bufferBytes
+                    + " (serve un multiplo positivo di 4 byte)");
+        }
+    }
+
+    /**
+     * Ordina gli int letti dal canale di input scrivendoli sul canale di output
+     * @return Numero di elementi ordinati
+     * @throws IOException se l'input termina a metà di un int o se la lettura/scrittura fallisce
+     */
+    long sort(ReadableByteChannel input, WritableByteChannel output) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bufferBytes).order(order);
+        int[] chunk = new int[bufferBytes / 4];
+        countPass(input, buffer, chunk);
+        outputPass(output, buffer, chunk);
+        return elementCount;
+    }
+
+    private void countPass(ReadableByteChannel input, ByteBuffer buffer, int[] chunk) throws IOException {
+        long findRangeNanos = 0;
+        long start = System.nanoTime();
+        // La passata alterna ricerca dell'intervallo e conteggio: un unico evento JFR la copre
+        CountingSortPhaseEvent.Span countEvent = CountingSortPhaseEvent.begin();
+        while (input.read(buffer) >= 0) {
+            buffer.flip();
+            IntBuffer ints = buffer.asIntBuffer();
+            int length = ints.remaining();
+            ints.get(chunk, 0, length);
+            buffer.position(length * 4);
+            buffer.compact(); // Conserva gli eventuali byte di un int spezzato tra due letture
+            if (length == 0) continue;
+
+            long rangeStart = System.nanoTime();
+            long minMax = CountingSortKernels.minMax(chunk, 0, length);
+            int chunkMin = CountingSortKernels.unpackMin(minMax);
+            int chunkMax = CountingSortKernels.unpackMax(minMax);
+            if (elementCount == 0) {
+                minValue = chunkMin;
+                maxValue = chunkMax;
+            } else {
+                minValue = Math.min(minValue, chunkMin);
+                maxValue = Math.max(maxValue, chunkMax);
+            }
+            histogram.ensureRange(chunkMin, chunkMax);
+            findRangeNanos += System.nanoTime() - rangeStart;
+
+            histogram.add(chunk, 0, length, chunkMin, chunkMax);
+            elementCount += length;
+        }
+        if (buffer.position() != 0) {
+            throw new IOException("L'input termina a metà di un int (" + buffer.position() + " byte in eccesso)");
+        }
+        phaseNanos[CountingSortEngine.Phase.FIND_RANGE.ordinal()] = findRangeNanos;
+        phaseNanos[CountingSortEngine.Phase.COUNT.ordinal()] = System.nanoTime() - start - findRangeNanos;
+        recordEvent(countEvent, CountingSortEngine.Phase.COUNT);
+    }
+
+    private void outputPass(WritableByteChannel output, ByteBuffer buffer, int[] chunk) throws IOException {
+        long start = System.nanoTime();
+        CountingSortPhaseEvent.Span outputEvent = CountingSortPhaseEvent.begin();
+        buffer.clear();
+        int filled = 0;
+        if (elementCount > 0) {
+            long[] counts = histogram.counts();
+            int base = histogram.base();
+            for (int i = minValue - base, last = maxValue - base; i <= last; i++) {
+                long occurrences = counts[i];
+                int value = base + i;
+                while (occurrences > 0) {
+                    int run = (int) Math.min(occurrences, chunk.length - filled);
+                    Arrays.fill(chunk, filled, filled + run, value);
+                    filled += run;
+                    occurrences -= run;
+                    if (filled == chunk.length) {
+                        write(output, buffer, chunk, filled);
+                        filled = 0;
+                    }
+                }
+            }
+        }
+        write(output, buffer, chunk, filled);
+        phaseNanos[CountingSortEngine.Phase.OUTPUT.ordinal()] = System.nanoTime() - start;
+        recordEvent(outputEvent, CountingSortEngine.Phase.OUTPUT);
+    }
+
+    private void recordEvent(CountingSortPhaseEvent.Span event, CountingSortEngine.Phase phase) {
+        CountingSortPhaseEvent.commit(event, phase, CountingSortEngine.EngineMode.EXTERNAL,
+                CountingSortEngine.SortAlgorithm.COUNTING, elementCount,
+                elementCount == 0 ? 0 : (long) maxValue - minValue + 1, phaseNanos[phase.ordinal()]);
+    }
+
+    private static void write(WritableByteChannel output, ByteBuffer buffer, int[] chunk, int length) throws IOException {
+        buffer.clear();
+        buffer.asIntBuffer().put(chunk, 0, length);
+        buffer.limit(length * 4);
+        while (buffer.hasRemaining()) {
+            output.write(buffer);
+        }
+    }
+
+    long getElementCount() { return elementCount; }
+    int getMinValue() { return minValue; }
+    int getMaxValue() { return maxValue; }
+    long[] getPhaseNanos() { return phaseNanos; }
+    /** Contatori allocati, compreso lo spazio lasciato per la crescita dell'intervallo */
+    int getCountArrayLength() { return histogram.counts().length; }
+}
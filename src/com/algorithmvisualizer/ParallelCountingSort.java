@@ -0,0 +1,175 @@
+package com.algorithmvisualizer;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Counting Sort parallelo a istogrammi: l'input viene diviso in blocchi, ogni worker
+ * del ForkJoinPool conta il proprio blocco su un array di conteggio privato, gli
+ * istogrammi vengono fusi per fasce di bucket e l'output viene riempito in parallelo
+ * dividendo le posizioni (non i bucket), così il carico resta bilanciato anche
+ * con distribuzioni molto sbilanciate.
+ * Un'istanza descrive una singola esecuzione.
+ */
+final class ParallelCountingSort {
+
+    private final ForkJoinPool pool;
+    private final int[] arr;
+    private final int parallelism;
+    private int chunks;
+    private int histogramCount;
+    private final long[] phaseNanos = new long[CountingSortEngine.Phase.values().length];
+    private CountingSortPhaseEvent.Span phaseEvent; // Evento JFR della fase in corso
+    private int minValue;
+    private int maxValue;
+
+    /**
+     * @param pool Pool su cui eseguire le fasi
+     * @param arr Array da ordinare (non viene modificato)
+     * @param parallelism Numero massimo di blocchi, di norma uno per worker
+     */
+    ParallelCountingSort(ForkJoinPool pool, int[] arr, int parallelism) {
+        this.pool = pool;
+        this.arr = arr;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Numero di blocchi da usare per n elementi: uno per worker, ma mai tanti da
+     * rendere gli istogrammi privati (chunks * k contatori) più grandi dell'input
+     * @return Numero di blocchi (almeno 1)
+     */
+    static int chunksFor(int n, long range, int parallelism) {
+        return (int) Math.max(1, Math.min(parallelism, n / Math.max(1, range)));
+    }
+
+    int[] sort() {
+        int n = arr.length;
+
+        // Fase 1: minimo e massimo per blocco, poi riduzione
+        long start = System.nanoTime();
+        phaseEvent = CountingSortPhaseEvent.begin();
+        chunks = parallelism;
+        final long[] partial = new long[chunks];
+        invoke(c -> partial[c] = CountingSortKernels.minMax(arr, chunkStart(c, n), chunkStart(c + 1, n)));
+        int min = CountingSortKernels.unpackMin(partial[0]);
+        int max = CountingSortKernels.unpackMax(partial[0]);
+        for (int c = 1; c < chunks; c++) {
+            min = Math.min(min, CountingSortKernels.unpackMin(partial[c]));
+            max = Math.max(max, CountingSortKernels.unpackMax(partial[c]));
+        }
+        minValue = min;
+        maxValue = max;
+        final int range = CountingSortKernels.countArrayLength(min, max);
+        long now = record(CountingSortEngine.Phase.FIND_RANGE, start);
+
+        // Fase 2: un istogramma privato per blocco, nessuna contesa tra i worker
+        chunks = chunksFor(n, range, parallelism);
+        histogramCount = chunks;
+        final int[][] histograms = new int[chunks][];
+        final int offset = min;
+        invoke(c -> {
+            int[] count = new int[range];
+            CountingSortKernels.histogram(arr, chunkStart(c, n), chunkStart(c + 1, n), offset, count);
+            histograms[c] = count;
+        });
+        now = record(CountingSortEngine.Phase.COUNT, now);
+
+        // Fase 3: fusione per fasce di bucket, poi somme prefisse (inizio di ogni bucket)
+        final int[] starts = histograms[0];
+        invoke(c -> {
+            int from = chunkStart(c, range);
+            int to = chunkStart(c + 1, range);
+            for (int h = 1; h < chunks; h++) {
+                int[] count = histograms[h];
+                for (int b = from; b < to; b++) {
+                    starts[b] += count[b];
+                }
+            }
+        });
+        CountingSortKernels.exclusivePrefixSum(starts);
+        now = record(CountingSortEngine.Phase.PREFIX, now);
+
+        // Fase 4: ogni worker riempie una fascia contigua di posizioni dell'output
+        chunks = parallelism;
+        final int[] result = new int[n];
+        invoke(c -> fillPositions(starts, offset, result, chunkStart(c, n), chunkStart(c + 1, n)));
+        record(CountingSortEngine.Phase.OUTPUT, now);
+        return result;
+    }
+
+    /**
+     * Riempie result[from, to) a partire dal bucket che contiene la posizione from
+     */
+    private static void fillPositions(int[] starts, int min, int[] result, int from, int to) {
+        if (from >= to) return;
+        int bucket = Arrays.binarySearch(starts, from);
+        if (bucket < 0) {
+            bucket = -bucket - 2;
+        } else {
+            // Più bucket possono iniziare nella stessa posizione se alcuni sono vuoti
+            while (bucket + 1 < starts.length && starts[bucket + 1] == from) bucket++;
+        }
+        int position = from;
+        while (position < to) {
+            int end = bucket + 1 < starts.length ? Math.min(to, starts[bucket + 1]) : to;
+            Arrays.fill(result, position, end, min + bucket);
+            position = end;
+            bucket++;
+        }
+    }
+
+    private int chunkStart(int chunk, int length) {
+        return (int) ((long) length * chunk / chunks);
+    }
+
+    private long record(CountingSortEngine.Phase phase, long start) {
+        long now = System.nanoTime();
+        phaseNanos[phase.ordinal()] = now - start;
+        // Come per phaseNanos, la fase successiva inizia adesso: la chiusura dell'evento ne fa parte
+        CountingSortPhaseEvent.Span finished = phaseEvent;
+        phaseEvent = phase == CountingSortEngine.Phase.OUTPUT ? null : CountingSortPhaseEvent.begin();
+        CountingSortPhaseEvent.commit(finished, phase, CountingSortEngine.EngineMode.PARALLEL,
+                CountingSortEngine.SortAlgorithm.COUNTING, arr.length, (long) maxValue - minValue + 1, now - start);
+        return now;
+    }
+
+    private void invoke(IntConsumer body) {
+        pool.invoke(new ChunkAction(body, 0, chunks));
+    }
+
+    int getMinValue() { return minValue; }
+    int getMaxValue() { return maxValue; }
+    int getParallelism() { return parallelism; }
+    int getHistogramCount() { return histogramCount; }
+    long[] getPhaseNanos() { return phaseNanos; }
+
+    /**
+     * Esegue il corpo per ogni blocco in [from, to) dividendo ricorsivamente l'intervallo
+     */
+    private static final class ChunkAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final IntConsumer body;
+        private final int from;
+        private final int to;
+
+        ChunkAction(IntConsumer body, int from, int to) {
+            this.body = body;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                body.accept(from);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ChunkAction(body, from, mid), new ChunkAction(body, mid, to));
+        }
+    }
+}
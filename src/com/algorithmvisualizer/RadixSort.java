@@ -0,0 +1,184 @@
+package com.algorithmvisualizer;
+
+/**
+ * Radix Sort LSD costruito sul Counting Sort stabile: ogni passata ordina per una cifra
+ * di digitBits bit. Gli istogrammi di tutte le cifre si costruiscono con un'unica
+ * lettura dell'input, le passate la cui cifra è uguale per tutte le chiavi vengono
+ * saltate e i dati rimbalzano tra due buffer allocati una sola volta.
+ * Il bit di segno viene invertito, così l'ordine senza segno delle cifre coincide
+ * con l'ordine con segno delle chiavi.
+ * Un'istanza descrive una singola esecuzione.
+ */
+final class RadixSort {
+
+    /** Larghezza massima di una cifra: 2^16 contatori per passata */
+    static final int MAX_DIGIT_BITS = 16;
+
+    private final int digitBits;
+    private final long[] phaseNanos = new long[CountingSortEngine.Phase.values().length];
+    private int totalPasses;
+    private int executedPasses;
+    private long minValue;
+    private long maxValue;
+    private int elementCount;
+    private CountingSortPhaseEvent.Span phaseEvent; // Evento JFR della fase in corso
+
+    RadixSort(int digitBits) {
+        checkDigitBits(digitBits);
+        this.digitBits = digitBits;
+    }
+
+    static void checkDigitBits(int digitBits) {
+        if (digitBits < 1 || digitBits > MAX_DIGIT_BITS) {
+            throw new IllegalArgumentException("Larghezza della cifra non valida: " + digitBits
+                    + " (ammessi 1-" + MAX_DIGIT_BITS + " bit)");
+        }
+    }
+
+    /**
+     * Ordina una copia di chiavi a 32 bit
+     * @param data Chiavi da ordinare (non vengono modificate)
+     * @return Nuovo array ordinato
+     */
+    int[] sort(int[] data) {
+        int n = data.length;
+        int radix = 1 << digitBits;
+        int mask = radix - 1;
+        totalPasses = (Integer.SIZE + digitBits - 1) / digitBits;
+        if (n == 0) return new int[0];
+
+        // Un'unica lettura: minimo, massimo e istogramma di ogni cifra
+        long start = System.nanoTime();
+        elementCount = n;
+        phaseEvent = CountingSortPhaseEvent.begin();
+        int[][] counts = new int[totalPasses][radix];
+        int min = data[0];
+        int max = data[0];
+        for (int i = 0; i < n; i++) {
+            int value = data[i];
+            if (value < min) min = value;
+            if (value > max) max = value;
+            int key = value ^ Integer.MIN_VALUE;
+            for (int pass = 0; pass < totalPasses; pass++) {
+                counts[pass][(key >>> (pass * digitBits)) & mask]++;
+            }
+        }
+        minValue = min;
+        maxValue = max;
+        long now = record(CountingSortEngine.Phase.COUNT, start);
+
+        int firstKey = data[0] ^ Integer.MIN_VALUE;
+        for (int pass = 0; pass < totalPasses; pass++) {
+            if (counts[pass][(firstKey >>> (pass * digitBits)) & mask] == n) {
+                counts[pass] = null; // Cifra costante: la passata non cambierebbe l'ordine
+            } else {
+                CountingSortKernels.exclusivePrefixSum(counts[pass]);
+            }
+        }
+        now = record(CountingSortEngine.Phase.PREFIX, now);
+
+        int[] source = data;
+        int[] front = new int[n];
+        int[] back = null;
+        for (int pass = 0; pass < totalPasses; pass++) {
+            int[] starts = counts[pass];
+            if (starts == null) continue;
+            int[] target = source == front ? back : front;
+            if (target == null) target = back = new int[n];
+            int shift = pass * digitBits;
+            for (int i = 0; i < n; i++) {
+                int value = source[i];
+                target[starts[((value ^ Integer.MIN_VALUE) >>> shift) & mask]++] = value;
+            }
+            source = target;
+            executedPasses++;
+        }
+        if (source == data) source = data.clone(); // Tutte le cifre costanti: elementi tutti uguali
+        record(CountingSortEngine.Phase.OUTPUT, now);
+        return source;
+    }
+
+    /**
+     * Ordina una copia di chiavi a 64 bit
+     * @param data Chiavi da ordinare (non vengono modificate)
+     * @return Nuovo array ordinato
+     */
+    long[] sort(long[] data) {
+        int n = data.length;
+        int radix = 1 << digitBits;
+        int mask = radix - 1;
+        totalPasses = (Long.SIZE + digitBits - 1) / digitBits;
+        if (n == 0) return new long[0];
+
+        long start = System.nanoTime();
+        elementCount = n;
+        phaseEvent = CountingSortPhaseEvent.begin();
+        int[][] counts = new int[totalPasses][radix];
+        long min = data[0];
+        long max = data[0];
+        for (int i = 0; i < n; i++) {
+            long value = data[i];
+            if (value < min) min = value;
+            if (value > max) max = value;
+            long key = value ^ Long.MIN_VALUE;
+            for (int pass = 0; pass < totalPasses; pass++) {
+                counts[pass][(int) (key >>> (pass * digitBits)) & mask]++;
+            }
+        }
+        minValue = min;
+        maxValue = max;
+        long now = record(CountingSortEngine.Phase.COUNT, start);
+
+        long firstKey = data[0] ^ Long.MIN_VALUE;
+        for (int pass = 0; pass < totalPasses; pass++) {
+            if (counts[pass][(int) (firstKey >>> (pass * digitBits)) & mask] == n) {
+                counts[pass] = null;
+            } else {
+                CountingSortKernels.exclusivePrefixSum(counts[pass]);
+            }
+        }
+        now = record(CountingSortEngine.Phase.PREFIX, now);
+
+        long[] source = data;
+        long[] front = new long[n];
+        long[] back = null;
+        for (int pass = 0; pass < totalPasses; pass++) {
+            int[] starts = counts[pass];
+            if (starts == null) continue;
+            long[] target = source == front ? back : front;
+            if (target == null) target = back = new long[n];
+            int shift = pass * digitBits;
+            for (int i = 0; i < n; i++) {
+                long value = source[i];
+                target[starts[(int) ((value ^ Long.MIN_VALUE) >>> shift) & mask]++] = value;
+            }
+            source = target;
+            executedPasses++;
+        }
+        if (source == data) source = data.clone();
+        record(CountingSortEngine.Phase.OUTPUT, now);
+        return source;
+    }
+
+    private long record(CountingSortEngine.Phase phase, long start) {
+        long now = System.nanoTime();
+        phaseNanos[phase.ordinal()] = now - start;
+        // Come per phaseNanos, la fase successiva inizia adesso: la chiusura dell'evento ne fa parte
+        CountingSortPhaseEvent.Span finished = phaseEvent;
+        phaseEvent = phase == CountingSortEngine.Phase.OUTPUT ? null : CountingSortPhaseEvent.begin();
+        CountingSortPhaseEvent.commit(finished, phase, CountingSortEngine.EngineMode.RADIX,
+                CountingSortEngine.SortAlgorithm.RADIX, elementCount, maxValue - minValue + 1, now - start);
+        return now;
+    }
+
+    /**
+     * Statistiche delle passate, da riportare nel risultato
+     */
+    CountingSortRadixStats getStats() {
+        return new CountingSortRadixStats(digitBits, totalPasses, executedPasses);
+    }
+
+    long getMinValue() { return minValue; }
+    long getMaxValue() { return maxValue; }
+    long[] getPhaseNanos() { return phaseNanos; }
+}